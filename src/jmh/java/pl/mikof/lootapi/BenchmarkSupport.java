@@ -0,0 +1,92 @@
+package pl.mikof.lootapi;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.SharedConstants;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.LootParams;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+
+/**
+ * Wspólne przygotowanie benchmarków - bootstrap gry, kontekst loot i przykładowy loot
+ */
+public final class BenchmarkSupport {
+    public static final ResourceLocation TABLE = ResourceLocation.withDefaultNamespace("blocks/stone");
+
+    private static boolean bootstrapped = false;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Inicjalizuje rejestry gry (raz na JVM) i wycisza logi - logowanie nie może zawyżać wyników
+     */
+    public static synchronized void bootstrap() {
+        if (bootstrapped) {
+            return;
+        }
+        Configurator.setRootLevel(Level.ERROR);
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        bootstrapped = true;
+    }
+
+    /**
+     * Przedmioty używane w benchmarkach (reguły i loot losują z tej samej puli, więc reguły trafiają)
+     */
+    public static Item[] items() {
+        return new Item[]{
+                Items.DIAMOND, Items.IRON_INGOT, Items.GOLD_INGOT, Items.COAL,
+                Items.EMERALD, Items.REDSTONE, Items.LAPIS_LAZULI, Items.COBBLESTONE
+        };
+    }
+
+    /**
+     * Loot o podanej liczbie stacków
+     */
+    public static ObjectArrayList<ItemStack> loot(int size) {
+        Item[] items = items();
+        ObjectArrayList<ItemStack> loot = new ObjectArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            loot.add(new ItemStack(items[i % items.length], 1 + i % 4));
+        }
+        return loot;
+    }
+
+    /**
+     * Kontekst loot bez świata - modifiery LootAPI korzystają tylko z RNG i ID tabeli
+     *
+     * LootContext nie ma publicznego konstruktora, a Builder wymaga ServerLevel,
+     * dlatego kontekst jest tworzony refleksją (pozostałe parametry = null).
+     */
+    public static LootContext context(long seed) {
+        LootParams params = new LootParams(null, Map.of(), Map.of(), 0.0f);
+        for (Constructor<?> constructor : LootContext.class.getDeclaredConstructors()) {
+            Class<?>[] types = constructor.getParameterTypes();
+            if (types.length < 2 || types[0] != LootParams.class || types[1] != RandomSource.class) {
+                continue;
+            }
+            Object[] args = new Object[types.length];
+            args[0] = params;
+            args[1] = RandomSource.create(seed);
+            try {
+                constructor.setAccessible(true);
+                LootContext context = (LootContext) constructor.newInstance(args);
+                context.setQueriedLootTableId(TABLE);
+                return context;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Failed to create LootContext", e);
+            }
+        }
+        throw new IllegalStateException("No usable LootContext constructor found");
+    }
+}
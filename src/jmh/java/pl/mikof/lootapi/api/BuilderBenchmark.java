@@ -0,0 +1,51 @@
+package pl.mikof.lootapi.api;
+
+import com.google.gson.JsonObject;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Items;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pl.mikof.lootapi.BenchmarkSupport;
+
+/**
+ * Ścieżka rejestracji - budowanie JSON reguły przez LootModifierBuilder
+ */
+@State(Scope.Thread)
+public class BuilderBenchmark {
+    // Liczba tabel docelowych jednej reguły (build() tworzy po jednym warunku na tabelę)
+    @Param({"1", "10", "100"})
+    public int tableCount;
+
+    private ResourceLocation[] tables;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+        tables = new ResourceLocation[tableCount];
+        for (int i = 0; i < tableCount; i++) {
+            tables[i] = ResourceLocation.withDefaultNamespace("blocks/benchmark_" + i);
+        }
+    }
+
+    @Benchmark
+    public JsonObject build() {
+        return LootModifierBuilder.addItem("benchmark_add")
+                .forTables(tables)
+                .withItem(Items.DIAMOND)
+                .withCount(1, 3)
+                .withChance(0.5f)
+                .build();
+    }
+
+    @Benchmark
+    public JsonObject buildRule() {
+        return LootModifierBuilder.replaceItem("benchmark_replace")
+                .forTables(tables)
+                .withOldItem(Items.COAL)
+                .withNewItem(Items.DIAMOND)
+                .buildRule();
+    }
+}
@@ -0,0 +1,94 @@
+package pl.mikof.lootapi.config;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import pl.mikof.lootapi.BenchmarkSupport;
+import pl.mikof.lootapi.api.LootModifierBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Przepustowość parsowania pliku konfiguracyjnego (JSON -> walidacja -> LootModifierBuilder)
+ * Wynik w plikach/s - wpisy/s = wynik * entries
+ */
+@State(Scope.Thread)
+public class ConfigParseBenchmark {
+    // Liczba wpisów w każdej z sekcji pliku
+    @Param({"10", "1000", "10000"})
+    public int entries;
+
+    private Path directory;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkSupport.bootstrap();
+        directory = Files.createTempDirectory("lootapi-jmh");
+        file = directory.resolve("benchmark.json");
+        Files.writeString(file, generate(entries).toString(), StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<LootModifierBuilder> parse() {
+        return LootConfigManager.reloadConfigFile(file).builders;
+    }
+
+    private static JsonObject generate(int entries) {
+        JsonArray modifications = new JsonArray();
+        JsonArray removals = new JsonArray();
+        JsonArray replacements = new JsonArray();
+        JsonArray multipliers = new JsonArray();
+        for (int i = 0; i < entries; i++) {
+            String table = "minecraft:blocks/benchmark_" + i;
+
+            JsonObject modification = new JsonObject();
+            modification.addProperty("table", table);
+            modification.addProperty("item", "minecraft:diamond");
+            JsonObject count = new JsonObject();
+            count.addProperty("min", 1);
+            count.addProperty("max", 3);
+            modification.add("count", count);
+            modification.addProperty("chance", 0.5);
+            modifications.add(modification);
+
+            JsonObject removal = new JsonObject();
+            removal.addProperty("table", table);
+            removal.addProperty("item", "minecraft:cobblestone");
+            removals.add(removal);
+
+            JsonObject replacement = new JsonObject();
+            replacement.addProperty("table", table);
+            replacement.addProperty("old_item", "minecraft:coal");
+            replacement.addProperty("new_item", "minecraft:diamond");
+            replacements.add(replacement);
+
+            JsonObject multiplier = new JsonObject();
+            multiplier.addProperty("table", table);
+            multiplier.addProperty("multiplier", 2.0);
+            multipliers.add(multiplier);
+        }
+
+        JsonObject config = new JsonObject();
+        config.add("modifications", modifications);
+        config.add("removals", removals);
+        config.add("replacements", replacements);
+        config.add("multipliers", multipliers);
+        return config;
+    }
+}
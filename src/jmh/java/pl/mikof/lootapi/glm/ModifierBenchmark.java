@@ -0,0 +1,122 @@
+package pl.mikof.lootapi.glm;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+import net.neoforged.neoforge.common.loot.IGlobalLootModifier;
+import net.neoforged.neoforge.common.loot.LootModifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pl.mikof.lootapi.BenchmarkSupport;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wykonanie modifierów z pl.mikof.lootapi.glm dla różnych rozmiarów lootu i liczby reguł
+ *
+ * sequential - każda reguła przez własne apply() -> doApply() (jak osobne GLM, bez warunków)
+ * pipeline   - te same reguły sklejone w jeden LootPipeline (jak lootapi:dispatch)
+ * refill     - sam koszt odtworzenia lootu przed operacją, do odjęcia od pozostałych wyników
+ *
+ * Modifiery zmieniają listę i stacki w miejscu, więc każda operacja odtwarza loot z tych samych
+ * obiektów (bez alokacji). gc.alloc.rate.norm pokazuje wtedy nowe ItemStacki przekazywane do świata:
+ * wylosowane stacki add_item / replace_item / replace_items / set_only_drop / weighted_choice, dodatkowe
+ * stacki z części ułamkowej multiply_drops, a w pipeline także stacki odcięte przez {@link StackCompactor}
+ * od stacków większych niż maksymalny rozmiar.
+ *
+ * multiply_drops: każda reguła ma ułamkowy mnożnik {@value #MULTIPLIER}^(1/ruleCount), więc każda losuje część
+ * ułamkową i może dodać dodatkowy stack, a cały zestaw mnoży loot łącznie przez {@value #MULTIPLIER}
+ * (przy stałym 1.5 na regułę loot rósłby 1.5^ruleCount).
+ * deliver_to_inventory w kontekście bez gracza mierzy tylko koszt sprawdzenia odbiorcy.
+ */
+@State(Scope.Thread)
+public class ModifierBenchmark {
+    private static final LootItemCondition[] NO_CONDITIONS = new LootItemCondition[0];
+    // Łączny mnożnik wszystkich reguł multiply_drops (jedna reguła = dokładnie ten mnożnik)
+    private static final float MULTIPLIER = 1.5f;
+
+    @Param({"add_item", "remove_item", "remove_items", "replace_item", "replace_items", "multiply_drops",
+            "clear_table", "set_only_drop", "weighted_choice", "deliver_to_inventory"})
+    public String type;
+
+    @Param({"1", "8", "64"})
+    public int lootSize;
+
+    @Param({"1", "10", "100"})
+    public int ruleCount;
+
+    private ItemStack[] stacks;
+    private int[] counts;
+    private ObjectArrayList<ItemStack> loot;
+    private LootModifier[] rules;
+    private LootPipeline compiled;
+    private LootContext context;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+        loot = BenchmarkSupport.loot(lootSize);
+        stacks = loot.toArray(new ItemStack[0]);
+        counts = new int[stacks.length];
+        for (int i = 0; i < stacks.length; i++) {
+            counts[i] = stacks[i].getCount();
+        }
+        context = BenchmarkSupport.context(42L);
+
+        Item[] items = BenchmarkSupport.items();
+        rules = new LootModifier[ruleCount];
+        for (int i = 0; i < ruleCount; i++) {
+            rules[i] = create(type, ruleCount, items[i % items.length], items[(i + 1) % items.length]);
+        }
+        compiled = LootPipeline.compile(List.<IGlobalLootModifier>of(rules));
+    }
+
+    @Benchmark
+    public ObjectArrayList<ItemStack> sequential() {
+        ObjectArrayList<ItemStack> result = refill();
+        for (LootModifier rule : rules) {
+            result = rule.apply(result, context);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public ObjectArrayList<ItemStack> pipeline() {
+        return compiled.apply(refill(), context);
+    }
+
+    @Benchmark
+    public ObjectArrayList<ItemStack> refill() {
+        // Lista zachowuje pojemność, stacki wracają do początkowych ilości
+        loot.clear();
+        for (int i = 0; i < stacks.length; i++) {
+            stacks[i].setCount(counts[i]);
+            loot.add(stacks[i]);
+        }
+        return loot;
+    }
+
+    private static LootModifier create(String type, int ruleCount, Item item, Item other) {
+        return switch (type) {
+            case "add_item" -> new AddItemModifier(NO_CONDITIONS, item, 1, 3, 0.5f);
+            case "remove_item" -> new RemoveItemModifier(NO_CONDITIONS, item);
+            case "remove_items" -> new RemoveItemsModifier(NO_CONDITIONS, List.of(item, other));
+            case "replace_item" -> new ReplaceItemModifier(NO_CONDITIONS, item, other);
+            case "replace_items" -> new ReplaceItemsModifier(NO_CONDITIONS, Map.of(item, other));
+            case "multiply_drops" -> new MultiplyDropsModifier(NO_CONDITIONS, (float) Math.pow(MULTIPLIER, 1.0 / ruleCount));
+            case "clear_table" -> new ClearTableModifier(NO_CONDITIONS);
+            case "set_only_drop" -> new SetOnlyDropModifier(NO_CONDITIONS, item, 1, 3);
+            case "weighted_choice" -> new WeightedChoiceModifier(NO_CONDITIONS, List.of(
+                    new WeightedChoiceModifier.Entry(item, 3.0f, 1, 2),
+                    new WeightedChoiceModifier.Entry(other, 1.0f, 1, 1)), 0.5f);
+            case "deliver_to_inventory" -> new DeliverToInventoryModifier(NO_CONDITIONS);
+            default -> throw new IllegalArgumentException("Unknown modifier type: " + type);
+        };
+    }
+}
@@ -1,10 +1,26 @@
 package pl.mikof.lootapi;
 
+import net.minecraft.core.registries.Registries;
+import net.minecraft.server.MinecraftServer;
+import net.neoforged.bus.api.EventPriority;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.fml.event.lifecycle.FMLCommonSetupEvent;
+import net.neoforged.neoforge.common.NeoForge;
+import net.neoforged.neoforge.event.OnDatapackSyncEvent;
+import net.neoforged.neoforge.event.server.ServerAboutToStartEvent;
+import net.neoforged.neoforge.event.server.ServerStartedEvent;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
 import org.slf4j.LoggerFactory;
+import pl.mikof.lootapi.api.LootModifierPack;
+import pl.mikof.lootapi.api.LootModifierRegistry;
+import pl.mikof.lootapi.command.LootAPICommand;
+import pl.mikof.lootapi.config.LootConfigManager;
+import pl.mikof.lootapi.config.LootConfigWatcher;
+import pl.mikof.lootapi.glm.DropAggregator;
+import pl.mikof.lootapi.glm.DropBudget;
 import pl.mikof.lootapi.glm.LootModifiers;
+import pl.mikof.lootapi.simulation.LootSimulator;
 import pl.mikof.lootapi.util.ColoredLogger;
 
 /**
@@ -32,12 +48,35 @@ public class LootAPI {
         LOGGER.init("Registering Global Loot Modifiers");
         LootModifiers.register(modEventBus);
 
+        // Wirtualny datapack z modifierem lootapi:dispatch
+        modEventBus.addListener(LootModifierPack::onAddPackFinders);
+
         // Rejestracja event handlerów
         modEventBus.addListener(this::commonSetup);
+        NeoForge.EVENT_BUS.addListener(this::serverAboutToStart);
+        NeoForge.EVENT_BUS.addListener(this::serverStarted);
+        NeoForge.EVENT_BUS.addListener(this::serverStopping);
+        NeoForge.EVENT_BUS.addListener(this::datapackSync);
+        if (DropAggregator.isEnabled()) {
+            NeoForge.EVENT_BUS.addListener(DropAggregator::onServerTick);
+            NeoForge.EVENT_BUS.addListener(DropAggregator::onLevelUnload);
+            // Przed zapisem świata - buforowane dropy nie mogą przepaść
+            NeoForge.EVENT_BUS.addListener(EventPriority.HIGHEST, DropAggregator::onServerStopping);
+        }
+        if (DropBudget.isEnabled()) {
+            NeoForge.EVENT_BUS.addListener(DropBudget::onServerTick);
+            NeoForge.EVENT_BUS.addListener(DropBudget::onLevelUnload);
+            NeoForge.EVENT_BUS.addListener(EventPriority.HIGHEST, DropBudget::onServerStopping);
+        }
+        NeoForge.EVENT_BUS.addListener(LootAPICommand::register);
     }
 
     private void commonSetup(final FMLCommonSetupEvent event) {
         event.enqueueWork(() -> {
+            // Reguły z config/lootapi
+            LootTableAPI.init();
+            LootConfigManager.loadAllConfigs();
+
             LOGGER.success("LootAPI setup complete!");
             LOGGER.info("Global Loot Modifiers are ready to use");
             LOGGER.info("Use LootTableAPI or JSON files to create modifiers");
@@ -45,6 +84,36 @@ public class LootAPI {
         });
     }
 
+    private void serverAboutToStart(final ServerAboutToStartEvent event) {
+        // Wzorce tabel są rozwijane przeciw tabelom z załadowanych datapacków
+        updateKnownTables(event.getServer());
+        // Jeśli żaden mod nie sfinalizował - zrób to przed załadowaniem datapacków
+        if (!LootTableAPI.isFinalized()) {
+            LootTableAPI.finalizeModifiers();
+        }
+    }
+
+    private void datapackSync(final OnDatapackSyncEvent event) {
+        // Brak gracza = /reload - zestaw tabel mógł się zmienić
+        if (event.getPlayer() == null) {
+            updateKnownTables(event.getPlayerList().getServer());
+        }
+    }
+
+    private static void updateKnownTables(MinecraftServer server) {
+        LootModifierRegistry.setKnownTables(server.reloadableRegistries().getKeys(Registries.LOOT_TABLE));
+    }
+
+    private void serverStarted(final ServerStartedEvent event) {
+        LootConfigWatcher.start(event.getServer());
+        // Symulacje bez graczy: -Dlootapi.simulate=...
+        LootSimulator.runFromProperties(event.getServer());
+    }
+
+    private void serverStopping(final ServerStoppingEvent event) {
+        LootConfigWatcher.stop();
+    }
+
     public static LootAPI getInstance() {
         return instance;
     }
@@ -7,7 +7,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.mikof.lootapi.api.LootModifierBuilder;
 import pl.mikof.lootapi.api.LootModifierRegistry;
+import pl.mikof.lootapi.api.LootRegistrationSession;
 import pl.mikof.lootapi.util.ColoredLogger;
+import pl.mikof.lootapi.util.LogSummary;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Publiczne API do modyfikacji loot tables
@@ -15,14 +20,17 @@ import pl.mikof.lootapi.util.ColoredLogger;
  */
 public class LootTableAPI {
     private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("LootTableAPI"));
-    private static boolean initialized = false;
-    private static boolean finalized = false;
-    private static int modifierCounter = 0;
+    // Mody rejestrują reguły z równoległych wątków ładowania
+    private static volatile boolean initialized = false;
+    private static volatile boolean finalized = false;
+    private static final AtomicInteger modifierCounter = new AtomicInteger();
+    // Reguły rejestrowane do finalizacji - jedna linia podsumowania zamiast linii na regułę
+    private static final LogSummary REGISTRATIONS = new LogSummary("Registered LootTableAPI rules");
 
     /**
      * Inicjalizuje API (wywoływane automatycznie)
      */
-    public static void init() {
+    public static synchronized void init() {
         if (!initialized) {
             initialized = true;
             LootModifierRegistry.init();
@@ -30,6 +38,19 @@ public class LootTableAPI {
         }
     }
 
+    // ==================== SESJE ====================
+
+    /**
+     * Otwiera sesję rejestracji dla moda - zalecane przy rejestracji z równoległych wątków ładowania
+     * i przy dużej liczbie reguł (zbiera reguły bez blokad, rejestruje je naraz w {@code commit()})
+     * @param modId ID moda (prefiks ID reguł, klucz kolejności w rejestrze)
+     */
+    public static LootRegistrationSession openSession(String modId) {
+        init();
+        checkNotFinalized();
+        return LootRegistrationSession.open(modId);
+    }
+
     // ==================== PODSTAWOWE METODY ====================
 
     /**
@@ -86,7 +107,8 @@ public class LootTableAPI {
         }
 
         LootModifierRegistry.register(builder);
-        LOGGER.action("Added {} to {} (count: {}-{}, chance: {})", item, tableId, minCount, maxCount, chance);
+        REGISTRATIONS.count("add_item");
+        LOGGER.detail("Added {} to {} (count: {}-{}, chance: {})", item, tableId, minCount, maxCount, chance);
     }
 
     /**
@@ -104,7 +126,32 @@ public class LootTableAPI {
                 .withItem(item);
 
         LootModifierRegistry.register(builder);
-        LOGGER.action("Removed {} from {}", item, tableId);
+        REGISTRATIONS.count("remove_item");
+        LOGGER.detail("Removed {} from {}", item, tableId);
+    }
+
+    /**
+     * Usuwa wiele przedmiotów z loot table jedną regułą (jedno przejście po loocie zamiast reguły na przedmiot)
+     * @param tableId ID tabeli
+     * @param items Przedmioty do usunięcia
+     */
+    public static void removeItemsFromTable(ResourceLocation tableId, Item... items) {
+        if (items == null || items.length == 0) {
+            throw new IllegalArgumentException("removeItemsFromTable: Must provide at least one item");
+        }
+        for (Item item : items) {
+            validateInputs(tableId, item, "removeItemsFromTable");
+        }
+
+        String modifierId = generateModifierId("remove_items");
+
+        LootModifierBuilder builder = LootModifierBuilder.removeItems(modifierId)
+                .forTable(tableId)
+                .withItems(items);
+
+        LootModifierRegistry.register(builder);
+        REGISTRATIONS.count("remove_items");
+        LOGGER.detail("Removed {} items from {}", items.length, tableId);
     }
 
     /**
@@ -125,7 +172,72 @@ public class LootTableAPI {
                 .withNewItem(newItem);
 
         LootModifierRegistry.register(builder);
-        LOGGER.action("Replaced {} with {} in {}", oldItem, newItem, tableId);
+        REGISTRATIONS.count("replace_item");
+        LOGGER.detail("Replaced {} with {} in {}", oldItem, newItem, tableId);
+    }
+
+    /**
+     * Zamienia wiele przedmiotów jedną regułą (mapa stary → nowy, jedno przejście po loocie)
+     * Zamienione stacki zachowują ilość i komponenty (nazwa, enchanty itd.)
+     * @param tableId ID tabeli
+     * @param replacements Mapa stary przedmiot → nowy przedmiot
+     */
+    public static void replaceItems(ResourceLocation tableId, Map<Item, Item> replacements) {
+        if (replacements == null || replacements.isEmpty()) {
+            throw new IllegalArgumentException("replaceItems: Must provide at least one replacement");
+        }
+
+        for (Map.Entry<Item, Item> replacement : replacements.entrySet()) {
+            validateInputs(tableId, replacement.getKey(), "replaceItems");
+            validateInputs(tableId, replacement.getValue(), "replaceItems");
+        }
+
+        String modifierId = generateModifierId("replace_items");
+
+        LootModifierBuilder builder = LootModifierBuilder.replaceItems(modifierId).forTable(tableId);
+        replacements.forEach(builder::withReplacement);
+
+        LootModifierRegistry.register(builder);
+        REGISTRATIONS.count("replace_items");
+        LOGGER.detail("Replaced {} items in {}", replacements.size(), tableId);
+    }
+
+    /**
+     * Dodaje jeden przedmiot wylosowany według wag (np. 10:5:1 → 62.5% / 31.25% / 6.25%)
+     * Losowanie ma stały koszt niezależnie od liczby przedmiotów
+     * @param tableId ID tabeli
+     * @param weights Mapa przedmiot → waga
+     */
+    public static void addWeightedChoice(ResourceLocation tableId, Map<Item, Integer> weights) {
+        addWeightedChoice(tableId, weights, 1.0f);
+    }
+
+    /**
+     * Dodaje jeden przedmiot wylosowany według wag z szansą, że cokolwiek wypadnie
+     * @param tableId ID tabeli
+     * @param weights Mapa przedmiot → waga
+     * @param chance Szansa (0.0 - 1.0)
+     */
+    public static void addWeightedChoice(ResourceLocation tableId, Map<Item, Integer> weights, float chance) {
+        if (weights == null || weights.isEmpty()) {
+            throw new IllegalArgumentException("addWeightedChoice: Must provide at least one weighted item");
+        }
+
+        String modifierId = generateModifierId("weighted_choice");
+
+        LootModifierBuilder builder = LootModifierBuilder.weightedChoice(modifierId).forTable(tableId);
+        for (Map.Entry<Item, Integer> weight : weights.entrySet()) {
+            validateInputs(tableId, weight.getKey(), "addWeightedChoice");
+            builder.withWeightedItem(weight.getKey(), weight.getValue());
+        }
+
+        if (chance < 1.0f) {
+            builder.withChance(chance);
+        }
+
+        LootModifierRegistry.register(builder);
+        REGISTRATIONS.count("weighted_choice");
+        LOGGER.detail("Added weighted choice of {} items to {} (chance: {})", weights.size(), tableId, chance);
     }
 
     /**
@@ -157,7 +269,8 @@ public class LootTableAPI {
                 .withMultiplier(multiplier);
 
         LootModifierRegistry.register(builder);
-        LOGGER.action("Set multiplier {}x for {}", multiplier, tableId);
+        REGISTRATIONS.count("multiply_drops");
+        LOGGER.detail("Set multiplier {}x for {}", multiplier, tableId);
     }
 
     /**
@@ -181,7 +294,8 @@ public class LootTableAPI {
                 .forTable(tableId);
 
         LootModifierRegistry.register(builder);
-        LOGGER.action("Disabled loot table {}", tableId);
+        REGISTRATIONS.count("clear_table");
+        LOGGER.detail("Disabled loot table {}", tableId);
     }
 
     /**
@@ -203,7 +317,8 @@ public class LootTableAPI {
                 .withCount(minCount, maxCount);
 
         LootModifierRegistry.register(builder);
-        LOGGER.action("Set {} as only drop in {} (count: {}-{})", item, tableId, minCount, maxCount);
+        REGISTRATIONS.count("set_only_drop");
+        LOGGER.detail("Set {} as only drop in {} (count: {}-{})", item, tableId, minCount, maxCount);
     }
 
     /**
@@ -234,6 +349,7 @@ public class LootTableAPI {
     }
 
     // ==================== BULK OPERATIONS (wiele tabel naraz) ====================
+    // Jedna reguła na wywołanie - indeks współdzieli ją (i skompilowany potok) między wszystkimi tabelami
 
     /**
      * Dodaje przedmiot do wielu tabel jednocześnie
@@ -248,13 +364,21 @@ public class LootTableAPI {
      * Dodaje przedmiot do wielu tabel z określoną ilością i szansą
      */
     public static void addItemToTables(Item item, int minCount, int maxCount, float chance, ResourceLocation... tables) {
-        if (tables == null || tables.length == 0) {
-            throw new IllegalArgumentException("Must provide at least one table");
-        }
-        for (ResourceLocation table : tables) {
-            addItemToTable(table, item, minCount, maxCount, chance);
+        validateTables(tables, "addItemToTables");
+        validateItem(item, "addItemToTables");
+        validateCounts(minCount, maxCount);
+
+        LootModifierBuilder builder = LootModifierBuilder.addItem(generateModifierId("add_item"))
+                .forTables(tables)
+                .withItem(item)
+                .withCount(minCount, maxCount);
+        if (chance < 1.0f) {
+            builder.withChance(chance);
         }
-        LOGGER.success("Added {} to {} tables", item, tables.length);
+
+        LootModifierRegistry.register(builder);
+        REGISTRATIONS.count("add_item");
+        LOGGER.detail("Added {} to {} tables", item, tables.length);
     }
 
     /**
@@ -263,13 +387,19 @@ public class LootTableAPI {
      * @param tables Tabele docelowe
      */
     public static void multiplyDropsForTables(float multiplier, ResourceLocation... tables) {
-        if (tables == null || tables.length == 0) {
-            throw new IllegalArgumentException("Must provide at least one table");
-        }
-        for (ResourceLocation table : tables) {
-            multiplyDrops(table, multiplier);
+        validateTables(tables, "multiplyDropsForTables");
+        if (multiplier <= 0) {
+            throw new IllegalArgumentException(
+                    "Multiplier must be positive! Got: " + multiplier + "\n" +
+                    "Example: multiplyDropsForTables(2.0f, tables...) for double drops"
+            );
         }
-        LOGGER.success("Set {}x multiplier for {} tables", multiplier, tables.length);
+
+        LootModifierRegistry.register(LootModifierBuilder.multiplyDrops(generateModifierId("multiply_drops"))
+                .forTables(tables)
+                .withMultiplier(multiplier));
+        REGISTRATIONS.count("multiply_drops");
+        LOGGER.detail("Set {}x multiplier for {} tables", multiplier, tables.length);
     }
 
     /**
@@ -277,13 +407,12 @@ public class LootTableAPI {
      * @param tables Tabele docelowe
      */
     public static void removeAllDropsFrom(ResourceLocation... tables) {
-        if (tables == null || tables.length == 0) {
-            throw new IllegalArgumentException("Must provide at least one table");
-        }
-        for (ResourceLocation table : tables) {
-            disableLootTable(table);
-        }
-        LOGGER.success("Disabled {} loot tables", tables.length);
+        validateTables(tables, "removeAllDropsFrom");
+
+        LootModifierRegistry.register(LootModifierBuilder.clearTable(generateModifierId("clear_table"))
+                .forTables(tables));
+        REGISTRATIONS.count("clear_table");
+        LOGGER.detail("Disabled {} loot tables", tables.length);
     }
 
     /**
@@ -292,13 +421,28 @@ public class LootTableAPI {
      * @param tables Tabele docelowe
      */
     public static void removeItemFromTables(Item item, ResourceLocation... tables) {
-        if (tables == null || tables.length == 0) {
-            throw new IllegalArgumentException("Must provide at least one table");
-        }
-        for (ResourceLocation table : tables) {
-            removeItemFromTable(table, item);
-        }
-        LOGGER.success("Removed {} from {} tables", item, tables.length);
+        validateTables(tables, "removeItemFromTables");
+        validateItem(item, "removeItemFromTables");
+
+        LootModifierRegistry.register(LootModifierBuilder.removeItem(generateModifierId("remove_item"))
+                .forTables(tables)
+                .withItem(item));
+        REGISTRATIONS.count("remove_item");
+        LOGGER.detail("Removed {} from {} tables", item, tables.length);
+    }
+
+    /**
+     * Wkłada loot tabel prosto do ekwipunku gracza, który zniszczył blok albo zabił moba
+     * Na ziemię spada tylko to, co się nie zmieściło; skrzynie i maszyny (FakePlayer) działają jak zwykle
+     * @param tables Tabele docelowe
+     */
+    public static void deliverToInventory(ResourceLocation... tables) {
+        validateTables(tables, "deliverToInventory");
+
+        LootModifierRegistry.register(LootModifierBuilder.deliverToInventory(generateModifierId("deliver_to_inventory"))
+                .forTables(tables));
+        REGISTRATIONS.count("deliver_to_inventory");
+        LOGGER.detail("Loot of {} tables goes straight to the player's inventory", tables.length);
     }
 
     // ==================== ZAAWANSOWANE METODY ====================
@@ -311,10 +455,14 @@ public class LootTableAPI {
         return switch (type.toLowerCase()) {
             case "add" -> LootModifierBuilder.addItem(modifierId);
             case "remove" -> LootModifierBuilder.removeItem(modifierId);
+            case "removeitems" -> LootModifierBuilder.removeItems(modifierId);
             case "replace" -> LootModifierBuilder.replaceItem(modifierId);
+            case "replaceitems" -> LootModifierBuilder.replaceItems(modifierId);
+            case "weighted" -> LootModifierBuilder.weightedChoice(modifierId);
             case "multiply" -> LootModifierBuilder.multiplyDrops(modifierId);
             case "clear" -> LootModifierBuilder.clearTable(modifierId);
             case "setonly" -> LootModifierBuilder.setOnlyDrop(modifierId);
+            case "deliver" -> LootModifierBuilder.deliverToInventory(modifierId);
             default -> throw new IllegalArgumentException("Unknown modifier type: " + type);
         };
     }
@@ -324,15 +472,17 @@ public class LootTableAPI {
      */
     public static void registerModifier(LootModifierBuilder builder) {
         LootModifierRegistry.register(builder);
+        REGISTRATIONS.count("custom");
     }
 
     // ==================== METODY POMOCNICZE ====================
 
     /**
-     * Finalizuje wszystkie modifiery i zapisuje do plików
+     * Finalizuje wszystkie modifiery i kompiluje indeks reguł (bez zapisu na dysk)
+     * Reguły każdej tabeli przechodzą przez {@link pl.mikof.lootapi.glm.LootRuleOptimizer}
      * Wywoływane automatycznie podczas startu gry
      */
-    public static void finalizeModifiers() {
+    public static synchronized void finalizeModifiers() {
         if (finalized) {
             LOGGER.warn("finalizeModifiers() already called! Ignoring duplicate call.");
             return;
@@ -344,17 +494,25 @@ public class LootTableAPI {
             );
         }
 
-        LootModifierRegistry.writeToFiles();
+        REGISTRATIONS.flush(LOGGER);
+        LootModifierRegistry.compile();
         finalized = true;
         LOGGER.success("Finalized {} loot modifiers - ready to use!", LootModifierRegistry.getModifierCount());
     }
 
+    /**
+     * Czy modyfikacje zostały już sfinalizowane
+     */
+    public static boolean isFinalized() {
+        return finalized;
+    }
+
     /**
      * Czyści wszystkie modyfikacje
      */
     public static void clearAllModifications() {
         LootModifierRegistry.clear();
-        modifierCounter = 0;
+        modifierCounter.set(0);
         LOGGER.info("Cleared all loot modifications");
     }
 
@@ -425,6 +583,10 @@ public class LootTableAPI {
                     "Example: LootTables.Blocks.DIAMOND_ORE or ResourceLocation.fromNamespaceAndPath(\"minecraft\", \"blocks/diamond_ore\")"
             );
         }
+        validateItem(item, operation);
+    }
+
+    private static void validateItem(Item item, String operation) {
         if (item == null || item == Items.AIR) {
             throw new IllegalArgumentException(
                     operation + ": Item cannot be null or AIR!\n" +
@@ -433,6 +595,20 @@ public class LootTableAPI {
         }
     }
 
+    private static void validateTables(ResourceLocation[] tables, String operation) {
+        checkInitialized();
+        checkNotFinalized();
+
+        if (tables == null || tables.length == 0) {
+            throw new IllegalArgumentException(operation + ": Must provide at least one table");
+        }
+        for (ResourceLocation table : tables) {
+            if (table == null) {
+                throw new IllegalArgumentException(operation + ": Table ID cannot be null!");
+            }
+        }
+    }
+
     private static void validateCounts(int minCount, int maxCount) {
         if (minCount <= 0) {
             throw new IllegalArgumentException(
@@ -452,6 +628,6 @@ public class LootTableAPI {
     }
 
     private static String generateModifierId(String prefix) {
-        return prefix + "_" + (modifierCounter++);
+        return prefix + "_" + modifierCounter.getAndIncrement();
     }
 }
@@ -2,13 +2,24 @@ package pl.mikof.lootapi.api;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.Items;
+import net.minecraft.world.item.enchantment.Enchantment;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.biome.Biome;
 import pl.mikof.lootapi.LootAPI;
+import pl.mikof.lootapi.glm.LootRuleCondition;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Builder do tworzenia Global Loot Modifiers programatycznie
@@ -17,6 +28,13 @@ public class LootModifierBuilder {
     private final String modifierId;
     private final String modifierType;
     private final List<ResourceLocation> targetTables = new ArrayList<>();
+    private final List<TablePattern> tablePatterns = new ArrayList<>();
+    // Warunki kontekstu - jak tabele, obsługuje je indeks (patrz getCondition())
+    private final Set<ResourceKey<Level>> dimensions = new LinkedHashSet<>();
+    private final Set<ResourceKey<Biome>> biomes = new LinkedHashSet<>();
+    private final Set<Item> tools = new LinkedHashSet<>();
+    private final Map<ResourceKey<Enchantment>, Integer> enchantments = new LinkedHashMap<>();
+    private final Set<EntityType<?>> killers = new LinkedHashSet<>();
     private final JsonObject data = new JsonObject();
 
     private LootModifierBuilder(String modifierId, String modifierType) {
@@ -44,6 +62,13 @@ public class LootModifierBuilder {
         return new LootModifierBuilder(modifierId, "lootapi:remove_item");
     }
 
+    /**
+     * Tworzy builder do usuwania wielu przedmiotów naraz (jedno przejście po loocie)
+     */
+    public static LootModifierBuilder removeItems(String modifierId) {
+        return new LootModifierBuilder(modifierId, "lootapi:remove_items");
+    }
+
     /**
      * Tworzy builder do zamiany przedmiotu
      */
@@ -51,6 +76,20 @@ public class LootModifierBuilder {
         return new LootModifierBuilder(modifierId, "lootapi:replace_item");
     }
 
+    /**
+     * Tworzy builder do zamiany wielu przedmiotów naraz (mapa stary → nowy, jedno przejście po loocie)
+     */
+    public static LootModifierBuilder replaceItems(String modifierId) {
+        return new LootModifierBuilder(modifierId, "lootapi:replace_items");
+    }
+
+    /**
+     * Tworzy builder do dodania jednego przedmiotu wylosowanego według wag
+     */
+    public static LootModifierBuilder weightedChoice(String modifierId) {
+        return new LootModifierBuilder(modifierId, "lootapi:weighted_choice");
+    }
+
     /**
      * Tworzy builder do mnożenia dropów
      */
@@ -72,6 +111,13 @@ public class LootModifierBuilder {
         return new LootModifierBuilder(modifierId, "lootapi:set_only_drop");
     }
 
+    /**
+     * Tworzy builder do dostarczania lootu tabel prosto do ekwipunku gracza (nadmiar spada na ziemię)
+     */
+    public static LootModifierBuilder deliverToInventory(String modifierId) {
+        return new LootModifierBuilder(modifierId, "lootapi:deliver_to_inventory");
+    }
+
     /**
      * Dodaje tabelę docelową
      */
@@ -83,6 +129,27 @@ public class LootModifierBuilder {
         return this;
     }
 
+    /**
+     * Dodaje tabelę docelową albo wzorzec tabel z gwiazdkami, np. "minecraft:blocks/*_ore"
+     */
+    public LootModifierBuilder forTable(String tableIdOrPattern) {
+        if (tableIdOrPattern == null || tableIdOrPattern.isEmpty()) {
+            throw new IllegalArgumentException("Table ID cannot be null or empty");
+        }
+        return TablePattern.isPattern(tableIdOrPattern)
+                ? forTablePattern(tableIdOrPattern)
+                : forTable(ResourceLocation.parse(tableIdOrPattern));
+    }
+
+    /**
+     * Dodaje wzorzec tabel docelowych, np. "*:entities/*"
+     * Wzorzec jest rozwijany do konkretnych tabel przy kompilacji indeksu, nie przy losowaniu
+     */
+    public LootModifierBuilder forTablePattern(String pattern) {
+        this.tablePatterns.add(TablePattern.parse(pattern));
+        return this;
+    }
+
     /**
      * Dodaje tablice docelowe
      */
@@ -98,6 +165,84 @@ public class LootModifierBuilder {
         return this;
     }
 
+    /**
+     * Ogranicza regułę do wymiarów, np. "minecraft:the_nether" (kilka wywołań = dowolny z nich)
+     */
+    public LootModifierBuilder inDimension(ResourceLocation... dimensionIds) {
+        if (dimensionIds == null || dimensionIds.length == 0) {
+            throw new IllegalArgumentException("Dimension IDs cannot be null or empty");
+        }
+        for (ResourceLocation dimensionId : dimensionIds) {
+            if (dimensionId == null) {
+                throw new IllegalArgumentException("Dimension ID cannot be null");
+            }
+            dimensions.add(ResourceKey.create(Registries.DIMENSION, dimensionId));
+        }
+        return this;
+    }
+
+    /**
+     * Ogranicza regułę do biomów w miejscu losowania
+     */
+    public LootModifierBuilder inBiome(ResourceLocation... biomeIds) {
+        if (biomeIds == null || biomeIds.length == 0) {
+            throw new IllegalArgumentException("Biome IDs cannot be null or empty");
+        }
+        for (ResourceLocation biomeId : biomeIds) {
+            if (biomeId == null) {
+                throw new IllegalArgumentException("Biome ID cannot be null");
+            }
+            biomes.add(ResourceKey.create(Registries.BIOME, biomeId));
+        }
+        return this;
+    }
+
+    /**
+     * Ogranicza regułę do narzędzi (blok / łowienie: użyte narzędzie, mob: przedmiot w ręce zabójcy)
+     */
+    public LootModifierBuilder withTool(Item... items) {
+        if (items == null || items.length == 0) {
+            throw new IllegalArgumentException("Tools cannot be null or empty");
+        }
+        for (Item item : items) {
+            if (item == null || item == Items.AIR) {
+                throw new IllegalArgumentException("Tool cannot be null or AIR");
+            }
+            tools.add(item);
+        }
+        return this;
+    }
+
+    /**
+     * Wymaga zaklęcia na narzędziu co najmniej na danym poziomie (kilka wywołań = wszystkie naraz)
+     */
+    public LootModifierBuilder withEnchantment(ResourceLocation enchantmentId, int minLevel) {
+        if (enchantmentId == null) {
+            throw new IllegalArgumentException("Enchantment ID cannot be null");
+        }
+        if (minLevel <= 0) {
+            throw new IllegalArgumentException("Enchantment level must be positive, got: " + minLevel);
+        }
+        enchantments.put(ResourceKey.create(Registries.ENCHANTMENT, enchantmentId), minLevel);
+        return this;
+    }
+
+    /**
+     * Ogranicza regułę do mobów zabitych przez podane typy istot, np. EntityType.PLAYER
+     */
+    public LootModifierBuilder killedBy(EntityType<?>... types) {
+        if (types == null || types.length == 0) {
+            throw new IllegalArgumentException("Killer types cannot be null or empty");
+        }
+        for (EntityType<?> type : types) {
+            if (type == null) {
+                throw new IllegalArgumentException("Killer type cannot be null");
+            }
+            killers.add(type);
+        }
+        return this;
+    }
+
     /**
      * Ustawia przedmiot (dla add_item, remove_item, set_only_drop)
      */
@@ -110,6 +255,24 @@ public class LootModifierBuilder {
         return this;
     }
 
+    /**
+     * Dodaje przedmioty do zbioru (dla remove_items)
+     */
+    public LootModifierBuilder withItems(Item... items) {
+        if (items == null || items.length == 0) {
+            throw new IllegalArgumentException("Items cannot be null or empty");
+        }
+        JsonArray itemIds = data.has("items") ? data.getAsJsonArray("items") : new JsonArray();
+        for (Item item : items) {
+            if (item == null || item == Items.AIR) {
+                throw new IllegalArgumentException("Item cannot be null or AIR");
+            }
+            itemIds.add(getItemId(item).toString());
+        }
+        data.add("items", itemIds);
+        return this;
+    }
+
     /**
      * Ustawia stary przedmiot (dla replace_item)
      */
@@ -134,6 +297,50 @@ public class LootModifierBuilder {
         return this;
     }
 
+    /**
+     * Dodaje zamianę stary → nowy (dla replace_items)
+     */
+    public LootModifierBuilder withReplacement(Item oldItem, Item newItem) {
+        if (oldItem == null || oldItem == Items.AIR || newItem == null || newItem == Items.AIR) {
+            throw new IllegalArgumentException("Replacement items cannot be null or AIR");
+        }
+        JsonObject replacements = data.has("replacements") ? data.getAsJsonObject("replacements") : new JsonObject();
+        replacements.addProperty(getItemId(oldItem).toString(), getItemId(newItem).toString());
+        data.add("replacements", replacements);
+        return this;
+    }
+
+    /**
+     * Dodaje przedmiot z wagą (dla weighted_choice)
+     */
+    public LootModifierBuilder withWeightedItem(Item item, float weight) {
+        return withWeightedItem(item, weight, 1, 1);
+    }
+
+    /**
+     * Dodaje przedmiot z wagą i zakresem ilości (dla weighted_choice)
+     */
+    public LootModifierBuilder withWeightedItem(Item item, float weight, int min, int max) {
+        if (item == null || item == Items.AIR) {
+            throw new IllegalArgumentException("Item cannot be null or AIR");
+        }
+        if (!(weight > 0.0f) || Float.isInfinite(weight)) {
+            throw new IllegalArgumentException("Weight must be positive, got: " + weight);
+        }
+        if (min <= 0 || max < min) {
+            throw new IllegalArgumentException("Invalid count range: " + min + "-" + max);
+        }
+        JsonObject entry = new JsonObject();
+        entry.addProperty("item", getItemId(item).toString());
+        entry.addProperty("weight", weight);
+        entry.addProperty("min_count", min);
+        entry.addProperty("max_count", max);
+        JsonArray entries = data.has("entries") ? data.getAsJsonArray("entries") : new JsonArray();
+        entries.add(entry);
+        data.add("entries", entries);
+        return this;
+    }
+
     /**
      * Ustawia ilość (dla add_item, set_only_drop)
      */
@@ -170,7 +377,7 @@ public class LootModifierBuilder {
     }
 
     /**
-     * Ustawia szansę (dla add_item)
+     * Ustawia szansę (dla add_item, weighted_choice)
      */
     public LootModifierBuilder withChance(float chance) {
         if (chance < 0.0f || chance > 1.0f) {
@@ -202,8 +409,20 @@ public class LootModifierBuilder {
      * Buduje JSON dla tego modifiera
      */
     public JsonObject build() {
+        return toJson(true);
+    }
+
+    /**
+     * Buduje JSON reguły bez warunków tabel
+     * Tabele docelowe obsługuje indeks dispatchera - patrz {@link #getTargetTables()}
+     */
+    public JsonObject buildRule() {
+        return toJson(false);
+    }
+
+    private JsonObject toJson(boolean withTableConditions) {
         // Walidacja przed budowaniem
-        if (targetTables.isEmpty()) {
+        if (targetTables.isEmpty() && tablePatterns.isEmpty()) {
             LootAPI.getLogger().warn("Modifier '{}' has no target tables - it will affect ALL loot tables!", modifierId);
         }
 
@@ -215,7 +434,15 @@ public class LootModifierBuilder {
 
         // Dodaj warunki dla tabel
         JsonArray conditions = new JsonArray();
-        if (!targetTables.isEmpty()) {
+        if (withTableConditions && !tablePatterns.isEmpty()) {
+            LootAPI.getLogger().warn("Modifier '{}' uses table patterns, which standalone GLM JSON cannot express - "
+                    + "only exact tables are written as conditions", modifierId);
+        }
+        if (withTableConditions && !getCondition().isAlways()) {
+            LootAPI.getLogger().warn("Modifier '{}' has context conditions, which are only applied through the "
+                    + "dispatch index - the standalone GLM JSON ignores them", modifierId);
+        }
+        if (withTableConditions && !targetTables.isEmpty()) {
             for (ResourceLocation tableId : targetTables) {
                 JsonObject condition = new JsonObject();
                 condition.addProperty("condition", "neoforge:loot_table_id");
@@ -249,17 +476,33 @@ public class LootModifierBuilder {
                     throw new IllegalStateException("remove_item modifier requires an item");
                 }
                 break;
+            case "lootapi:remove_items":
+                if (!data.has("items") || data.getAsJsonArray("items").isEmpty()) {
+                    throw new IllegalStateException("remove_items modifier requires at least one item");
+                }
+                break;
             case "lootapi:replace_item":
                 if (!data.has("old_item") || !data.has("new_item")) {
                     throw new IllegalStateException("replace_item modifier requires both old_item and new_item");
                 }
                 break;
+            case "lootapi:replace_items":
+                if (!data.has("replacements") || data.getAsJsonObject("replacements").isEmpty()) {
+                    throw new IllegalStateException("replace_items modifier requires at least one replacement");
+                }
+                break;
+            case "lootapi:weighted_choice":
+                if (!data.has("entries") || data.getAsJsonArray("entries").isEmpty()) {
+                    throw new IllegalStateException("weighted_choice modifier requires at least one weighted item");
+                }
+                break;
             case "lootapi:multiply_drops":
                 if (!data.has("multiplier")) {
                     throw new IllegalStateException("multiply_drops modifier requires a multiplier");
                 }
                 break;
             case "lootapi:clear_table":
+            case "lootapi:deliver_to_inventory":
                 // No additional data required
                 break;
             default:
@@ -274,6 +517,27 @@ public class LootModifierBuilder {
         return modifierId;
     }
 
+    /**
+     * Zwraca tabele docelowe (pusta lista i brak wzorców = wszystkie tabele)
+     */
+    public List<ResourceLocation> getTargetTables() {
+        return List.copyOf(targetTables);
+    }
+
+    /**
+     * Zwraca wzorce tabel docelowych (rozwijane przez {@link LootModifierRegistry})
+     */
+    public List<TablePattern> getTablePatterns() {
+        return List.copyOf(tablePatterns);
+    }
+
+    /**
+     * Zwraca warunek kontekstu reguły (kompilowany przez indeks przy finalizacji)
+     */
+    public LootRuleCondition getCondition() {
+        return new LootRuleCondition(dimensions, biomes, tools, enchantments, killers);
+    }
+
     /**
      * Pomocnicza metoda do pobierania ID przedmiotu
      */
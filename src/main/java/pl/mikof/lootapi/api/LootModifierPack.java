@@ -0,0 +1,166 @@
+package pl.mikof.lootapi.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import net.minecraft.SharedConstants;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.BuiltInMetadata;
+import net.minecraft.server.packs.PackLocationInfo;
+import net.minecraft.server.packs.PackResources;
+import net.minecraft.server.packs.PackSelectionConfig;
+import net.minecraft.server.packs.PackType;
+import net.minecraft.server.packs.metadata.MetadataSectionSerializer;
+import net.minecraft.server.packs.metadata.pack.PackMetadataSection;
+import net.minecraft.server.packs.repository.Pack;
+import net.minecraft.server.packs.repository.PackSource;
+import net.minecraft.server.packs.resources.IoSupplier;
+import net.neoforged.neoforge.event.AddPackFindersEvent;
+import org.jetbrains.annotations.Nullable;
+import pl.mikof.lootapi.LootAPI;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Wirtualny datapack trzymany w pamięci - dostarcza modifier lootapi:dispatch
+ *
+ * Reguły żyją w {@link pl.mikof.lootapi.glm.LootRuleIndex}, więc zawartość paczki jest stała
+ * i nie zależy od liczby reguł. Finalizacja nie dotyka dysku.
+ */
+public class LootModifierPack implements PackResources {
+    private static final String PACK_ID = LootAPI.MOD_ID + "_rules";
+
+    private static final ResourceLocation GLOBAL_MODIFIERS =
+            ResourceLocation.fromNamespaceAndPath("neoforge", "loot_modifiers/global_loot_modifiers.json");
+    private static final ResourceLocation DISPATCH_MODIFIER =
+            ResourceLocation.fromNamespaceAndPath(LootAPI.MOD_ID, "loot_modifiers/" + LootModifierRegistry.DISPATCH_ID + ".json");
+
+    private static final Map<ResourceLocation, byte[]> FILES = Map.of(
+            GLOBAL_MODIFIERS, globalModifiersJson(),
+            DISPATCH_MODIFIER, dispatchModifierJson()
+    );
+
+    private final PackLocationInfo location;
+    private final BuiltInMetadata metadata;
+
+    private LootModifierPack(PackLocationInfo location) {
+        this.location = location;
+        this.metadata = BuiltInMetadata.of(PackMetadataSection.TYPE, new PackMetadataSection(
+                Component.literal("LootAPI programmatic loot modifiers"),
+                SharedConstants.getCurrentVersion().getPackVersion(PackType.SERVER_DATA),
+                Optional.empty()
+        ));
+    }
+
+    /**
+     * Rejestruje paczkę w repozytorium datapacków serwera
+     */
+    public static void onAddPackFinders(AddPackFindersEvent event) {
+        if (event.getPackType() != PackType.SERVER_DATA) {
+            return;
+        }
+
+        PackLocationInfo info = new PackLocationInfo(
+                PACK_ID,
+                Component.literal("LootAPI Rules"),
+                PackSource.BUILT_IN,
+                Optional.empty()
+        );
+        Pack.ResourcesSupplier resources = new Pack.ResourcesSupplier() {
+            @Override
+            public PackResources openPrimary(PackLocationInfo location) {
+                return new LootModifierPack(location);
+            }
+
+            @Override
+            public PackResources openFull(PackLocationInfo location, Pack.Metadata metadata) {
+                return new LootModifierPack(location);
+            }
+        };
+
+        // required = zawsze włączona, także w istniejących światach
+        Pack pack = Pack.readMetaAndCreate(info, resources, PackType.SERVER_DATA,
+                new PackSelectionConfig(true, Pack.Position.TOP, false));
+        if (pack == null) {
+            LootAPI.getLogger().error("Failed to create in-memory loot modifier pack");
+            return;
+        }
+        event.addRepositorySource(consumer -> consumer.accept(pack));
+    }
+
+    @Override
+    public @Nullable IoSupplier<InputStream> getRootResource(String... elements) {
+        return null;
+    }
+
+    @Override
+    public @Nullable IoSupplier<InputStream> getResource(PackType packType, ResourceLocation location) {
+        if (packType != PackType.SERVER_DATA) {
+            return null;
+        }
+        byte[] content = FILES.get(location);
+        return content == null ? null : () -> new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public void listResources(PackType packType, String namespace, String path, ResourceOutput resourceOutput) {
+        if (packType != PackType.SERVER_DATA) {
+            return;
+        }
+        String prefix = path.endsWith("/") ? path : path + "/";
+        for (Map.Entry<ResourceLocation, byte[]> file : FILES.entrySet()) {
+            ResourceLocation id = file.getKey();
+            if (id.getNamespace().equals(namespace) && id.getPath().startsWith(prefix)) {
+                byte[] content = file.getValue();
+                resourceOutput.accept(id, () -> new ByteArrayInputStream(content));
+            }
+        }
+    }
+
+    @Override
+    public Set<String> getNamespaces(PackType type) {
+        return type == PackType.SERVER_DATA ? Set.of("neoforge", LootAPI.MOD_ID) : Set.of();
+    }
+
+    @Override
+    public @Nullable <T> T getMetadataSection(MetadataSectionSerializer<T> deserializer) {
+        return metadata.get(deserializer);
+    }
+
+    @Override
+    public PackLocationInfo location() {
+        return location;
+    }
+
+    @Override
+    public void close() {
+        // Nic do zamknięcia - wszystko jest w pamięci
+    }
+
+    /**
+     * data/neoforge/loot_modifiers/global_loot_modifiers.json
+     */
+    private static byte[] globalModifiersJson() {
+        JsonObject global = new JsonObject();
+        global.addProperty("replace", false);
+        JsonArray entries = new JsonArray();
+        entries.add(LootAPI.MOD_ID + ":" + LootModifierRegistry.DISPATCH_ID);
+        global.add("entries", entries);
+        return global.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * data/lootapi/loot_modifiers/dispatch.json - wszystkie reguły obsługuje jeden modifier
+     */
+    private static byte[] dispatchModifierJson() {
+        JsonObject dispatch = new JsonObject();
+        dispatch.addProperty("type", LootAPI.MOD_ID + ":" + LootModifierRegistry.DISPATCH_ID);
+        dispatch.add("conditions", new JsonArray());
+        return dispatch.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,33 +1,106 @@
 package pl.mikof.lootapi.api;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import net.minecraft.server.packs.PackType;
-import net.minecraft.server.packs.repository.Pack;
-import net.neoforged.fml.loading.FMLPaths;
+import com.mojang.serialization.JsonOps;
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.neoforge.common.loot.IGlobalLootModifier;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.LoggerFactory;
-import pl.mikof.lootapi.LootAPI;
+import pl.mikof.lootapi.glm.LootRuleCondition;
+import pl.mikof.lootapi.glm.LootRuleIndex;
+import pl.mikof.lootapi.glm.LootRuleOptimizer;
 import pl.mikof.lootapi.util.ColoredLogger;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Rejestr wszystkich Global Loot Modifiers tworzonych programatycznie
  */
 public class LootModifierRegistry {
     private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("LootModifierRegistry"));
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 
-    private static final Map<String, JsonObject> MODIFIERS = new LinkedHashMap<>();
+    // Jedyny wpis w global_loot_modifiers.json (serwowany przez LootModifierPack) - reszta reguł żyje w LootRuleIndex
+    static final String DISPATCH_ID = "dispatch";
+
+    // Źródło reguł rejestrowanych z kodu (LootTableAPI) - pliki konfiguracyjne mają własne źródła
+    public static final String API_SOURCE = "api";
+    // Prefiks źródeł sesji rejestracji (LootRegistrationSession) - "mod:<modId>"
+    public static final String SESSION_SOURCE_PREFIX = "mod:";
+    private static final String CONFIG_SOURCE_PREFIX = "config:";
+
+    private static final Map<String, RegisteredModifier> MODIFIERS = new LinkedHashMap<>();
+    // Sesje zatwierdzone przed kompilacją: ID moda → reguły; TreeMap = kolejność niezależna od wątków
+    private static final Map<String, Map<String, RegisteredModifier>> PENDING_SESSIONS = new TreeMap<>();
+    // Numeracja ID reguł sesji: ID moda → następny numer (wspólna dla wszystkich sesji moda)
+    private static final Map<String, AtomicInteger> SESSION_SEQUENCES = new ConcurrentHashMap<>();
+    // Znane ID tabel (z przeładowanych datapacków) i wzorce już rozwinięte przeciw nim
+    private static Set<ResourceLocation> knownTables = Set.of();
+    private static final Map<TablePattern, Set<ResourceLocation>> PATTERN_MATCHES = new HashMap<>();
     private static boolean initialized = false;
+    private static boolean compiled = false;
+
+    /**
+     * Zarejestrowana reguła: źródło, tabele docelowe, wzorce tabel i warunek kontekstu + JSON reguły (bez warunków)
+     */
+    private static final class RegisteredModifier {
+        private final String source;
+        private final List<ResourceLocation> tables;
+        private final List<TablePattern> patterns;
+        private final LootRuleCondition condition;
+        // null dla reguł wczytanych ze snapshotu - te są od razu zdekodowane
+        private final JsonObject rule;
+        // Zdekodowany modifier - ustawiany przy kompilacji i trzymany do przebudowy pojedynczych tabel
+        private IGlobalLootModifier decoded;
+
+        private RegisteredModifier(String source, List<ResourceLocation> tables, List<TablePattern> patterns,
+                                   LootRuleCondition condition, JsonObject rule) {
+            this.source = source;
+            this.tables = tables;
+            this.patterns = patterns;
+            this.condition = condition;
+            this.rule = rule;
+        }
+
+        private RegisteredModifier(String source, List<ResourceLocation> tables, List<TablePattern> patterns,
+                                   LootRuleCondition condition, IGlobalLootModifier decoded) {
+            this(source, tables, patterns, condition, (JsonObject) null);
+            this.decoded = decoded;
+        }
+
+        private RegisteredModifier(String source, LootModifierBuilder builder) {
+            this(source, builder.getTargetTables(), builder.getTablePatterns(), builder.getCondition(), builder.buildRule());
+        }
+
+        private RegisteredModifier(String source, CompiledRule rule) {
+            this(source, rule.tables(), rule.patterns(), rule.condition(), rule.modifier());
+        }
+
+        /**
+         * Reguła bez tabel i wzorców dotyczy wszystkich tabel
+         */
+        private boolean isGlobal() {
+            return tables.isEmpty() && patterns.isEmpty();
+        }
+    }
+
+    /**
+     * Zdekodowana reguła razem z ID, tabelami, wzorcami tabel i warunkiem - postać zapisywana w snapshocie konfiguracji
+     */
+    public record CompiledRule(String id, List<ResourceLocation> tables, List<TablePattern> patterns,
+                               LootRuleCondition condition, IGlobalLootModifier modifier) {
+    }
 
     /**
      * Inicjalizuje rejestr
@@ -44,6 +117,13 @@ public class LootModifierRegistry {
      * Rejestruje nowy modifier
      */
     public static void register(LootModifierBuilder builder) {
+        register(builder, API_SOURCE);
+    }
+
+    /**
+     * Rejestruje nowy modifier pochodzący z podanego źródła (np. pliku konfiguracyjnego)
+     */
+    public static synchronized void register(LootModifierBuilder builder, String source) {
         if (builder == null) {
             LOGGER.warn("Attempted to register null modifier builder, skipping");
             return;
@@ -59,139 +139,407 @@ public class LootModifierRegistry {
             LOGGER.warn("Modifier '{}' already registered, overwriting", id);
         }
 
-        JsonObject json = builder.build();
-        MODIFIERS.put(id, json);
+        RegisteredModifier modifier = new RegisteredModifier(source, builder);
+        RegisteredModifier previous = MODIFIERS.put(id, modifier);
         LOGGER.debug("Registered loot modifier: {}", id);
+
+        // Rejestracja po finalizacji (np. spóźniony config) - przebuduj tylko tabele tej reguły
+        if (compiled) {
+            Set<ResourceLocation> affected = new HashSet<>(targets(modifier));
+            boolean touchesGlobal = modifier.isGlobal();
+            if (previous != null) {
+                affected.addAll(targets(previous));
+                touchesGlobal |= previous.isGlobal();
+            }
+            recompile(affected, touchesGlobal);
+        }
     }
 
     /**
-     * Zapisuje wszystkie modifiery do plików
-     * Wywoływane podczas startu gry
+     * Podmienia wszystkie reguły z danego źródła na nowe (hot reload pliku konfiguracyjnego)
+     * Reguły zachowują pozycję źródła w kolejności rejestracji; przebudowywane są tylko
+     * tabele, których dotyczyły stare albo nowe reguły - pozostałe potoki zostają nietknięte.
      */
-    public static void writeToFiles() {
-        if (MODIFIERS.isEmpty()) {
-            LOGGER.info("No programmatic loot modifiers to write");
-            return;
+    public static synchronized void replaceSource(String source, List<LootModifierBuilder> builders) {
+        Map<String, RegisteredModifier> entries = new LinkedHashMap<>();
+        for (LootModifierBuilder builder : builders) {
+            entries.put(builder.getModifierId(), new RegisteredModifier(source, builder));
         }
+        replaceEntries(source, entries);
+    }
 
-        LOGGER.header("Writing loot modifiers to disk...");
+    /**
+     * Jak {@link #replaceSource}, ale dla reguł już zdekodowanych (wczytanych ze snapshotu)
+     * - pomija budowanie JSON i dekodowanie przez MapCodec
+     */
+    public static synchronized void replaceSourceCompiled(String source, List<CompiledRule> rules) {
+        Map<String, RegisteredModifier> entries = new LinkedHashMap<>();
+        for (CompiledRule rule : rules) {
+            entries.put(rule.id(), new RegisteredModifier(source, rule));
+        }
+        replaceEntries(source, entries);
+    }
+
+    /**
+     * Zwraca zdekodowane reguły danego źródła w kolejności rejestracji
+     * @return null, jeśli któraś reguła nie dała się zdekodować
+     */
+    public static synchronized @Nullable List<CompiledRule> getCompiledRules(String source) {
+        List<CompiledRule> rules = new ArrayList<>();
+        for (Map.Entry<String, RegisteredModifier> entry : MODIFIERS.entrySet()) {
+            RegisteredModifier modifier = entry.getValue();
+            if (!modifier.source.equals(source)) {
+                continue;
+            }
+            IGlobalLootModifier decoded = decode(entry.getKey(), modifier);
+            if (decoded == null) {
+                return null;
+            }
+            rules.add(new CompiledRule(entry.getKey(), modifier.tables, modifier.patterns, modifier.condition, decoded));
+        }
+        return rules;
+    }
+
+    /**
+     * Zwraca kolejny numer ID reguły sesji moda
+     * Numeracja jest wspólna dla wszystkich sesji moda, więc kolejna sesja nie powtarza ID poprzedniej
+     */
+    static int nextSessionSequence(String modId) {
+        return SESSION_SEQUENCES.computeIfAbsent(modId, id -> new AtomicInteger()).getAndIncrement();
+    }
+
+    /**
+     * Zatwierdza reguły sesji moda jednym wywołaniem pod blokadą
+     *
+     * Przed kompilacją reguły czekają w kolejce, a przy kompilacji trafiają przed reguły z plików
+     * konfiguracyjnych, posortowane po ID moda - kolejność nie zależy od tego, który wątek zdążył pierwszy.
+     * Po kompilacji są wstawiane od razu i przebudowywane są tylko ich tabele.
+     * Reguła z ID, które jest już w rejestrze (albo wcześniej w tej samej paczce), jest odrzucana.
+     *
+     * @return ID odrzuconych reguł
+     */
+    public static List<String> commitSession(String modId, List<CompiledRule> rules) {
+        // Przygotowanie poza blokadą
+        Map<String, RegisteredModifier> entries = new LinkedHashMap<>(rules.size() * 2);
+        List<String> duplicates = new ArrayList<>();
+        String source = SESSION_SOURCE_PREFIX + modId;
+        for (CompiledRule rule : rules) {
+            if (entries.putIfAbsent(rule.id(), new RegisteredModifier(source, rule)) != null) {
+                duplicates.add(rule.id());
+            }
+        }
+
+        synchronized (LootModifierRegistry.class) {
+            Iterator<String> ids = entries.keySet().iterator();
+            while (ids.hasNext()) {
+                String id = ids.next();
+                if (isRegistered(id)) {
+                    duplicates.add(id);
+                    ids.remove();
+                }
+            }
+            if (!duplicates.isEmpty()) {
+                LOGGER.error("Rejected {} rules from {} with duplicate IDs: {}", duplicates.size(), modId, duplicates);
+            }
+            if (entries.isEmpty()) {
+                return duplicates;
+            }
+            PENDING_SESSIONS.computeIfAbsent(modId, id -> new LinkedHashMap<>()).putAll(entries);
+            if (compiled) {
+                Set<ResourceLocation> affected = new HashSet<>();
+                boolean touchesGlobal = false;
+                for (RegisteredModifier modifier : entries.values()) {
+                    affected.addAll(targets(modifier));
+                    touchesGlobal |= modifier.isGlobal();
+                }
+                mergePendingSessions();
+                recompile(affected, touchesGlobal);
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Czy ID jest już w rejestrze albo w oczekującej sesji
+     */
+    private static boolean isRegistered(String id) {
+        if (MODIFIERS.containsKey(id)) {
+            return true;
+        }
+        for (Map<String, RegisteredModifier> session : PENDING_SESSIONS.values()) {
+            if (session.containsKey(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        try {
-            // Ścieżka do wygenerowanych danych
-            // WAŻNE: Global Loot Modifiers MUSZĄ być częścią resources moda!
-            // W środowisku dev: zapisujemy do src/generated/resources/
-            // FMLPaths.GAMEDIR.get() wskazuje na run/, więc cofamy się o poziom wyżej
-            Path projectRoot = FMLPaths.GAMEDIR.get().getParent();
-            Path dataPath = projectRoot
-                    .resolve("src")
-                    .resolve("generated")
-                    .resolve("resources");
+    /**
+     * Wstawia oczekujące sesje przed pierwszą regułą z pliku konfiguracyjnego,
+     * a między istniejące reguły sesji zgodnie z kolejnością ID modów
+     */
+    private static void mergePendingSessions() {
+        if (PENDING_SESSIONS.isEmpty()) {
+            return;
+        }
 
-            // Utwórz katalogi dla modifierów
-            // Ścieżka: src/generated/resources/data/lootapi/loot_modifiers/
-            Path lootModifiersPath = dataPath
-                    .resolve("data")
-                    .resolve(LootAPI.MOD_ID)
-                    .resolve("loot_modifiers");
+        Map<String, RegisteredModifier> rebuilt = new LinkedHashMap<>(MODIFIERS.size() * 2);
+        Iterator<Map.Entry<String, Map<String, RegisteredModifier>>> pending = PENDING_SESSIONS.entrySet().iterator();
+        Map.Entry<String, Map<String, RegisteredModifier>> next = pending.next();
+        // Mod, którego blok reguł właśnie przechodzimy (null = reguła spoza sesji)
+        String currentMod = null;
+        for (Map.Entry<String, RegisteredModifier> entry : MODIFIERS.entrySet()) {
+            String source = entry.getValue().source;
+            String mod = source.startsWith(SESSION_SOURCE_PREFIX) ? source.substring(SESSION_SOURCE_PREFIX.length()) : null;
+            // Kolejne zatwierdzenie tego samego moda - na koniec jego bloku
+            if (next != null && currentMod != null && !currentMod.equals(mod) && next.getKey().equals(currentMod)) {
+                rebuilt.putAll(next.getValue());
+                next = pending.hasNext() ? pending.next() : null;
+            }
+            // Przed regułami z plików albo przed blokiem moda o większym ID
+            while (next != null && (source.startsWith(CONFIG_SOURCE_PREFIX)
+                    || (mod != null && !mod.equals(currentMod) && next.getKey().compareTo(mod) < 0))) {
+                rebuilt.putAll(next.getValue());
+                next = pending.hasNext() ? pending.next() : null;
+            }
+            currentMod = mod;
+            rebuilt.put(entry.getKey(), entry.getValue());
+        }
+        while (next != null) {
+            rebuilt.putAll(next.getValue());
+            next = pending.hasNext() ? pending.next() : null;
+        }
 
-            Files.createDirectories(lootModifiersPath);
-            LOGGER.debug("Created modifiers directory: {}", lootModifiersPath);
+        PENDING_SESSIONS.clear();
+        MODIFIERS.clear();
+        MODIFIERS.putAll(rebuilt);
+    }
 
-            // Zapisz każdy modifier
-            List<String> entries = new ArrayList<>();
-            int written = 0;
-            for (Map.Entry<String, JsonObject> entry : MODIFIERS.entrySet()) {
-                String id = entry.getKey();
-                JsonObject json = entry.getValue();
+    private static void replaceEntries(String source, Map<String, RegisteredModifier> entries) {
+        Set<ResourceLocation> affected = new HashSet<>();
+        boolean touchesGlobal = false;
 
-                // Zapisz plik JSON modifiera
-                Path modifierFile = lootModifiersPath.resolve(id + ".json");
-                Files.writeString(modifierFile, GSON.toJson(json));
+        Map<String, RegisteredModifier> rebuilt = new LinkedHashMap<>();
+        boolean inserted = false;
+        int removed = 0;
 
-                entries.add(LootAPI.MOD_ID + ":" + id);
-                written++;
-                LOGGER.debug("Wrote modifier: {}.json", id);
+        for (Map.Entry<String, RegisteredModifier> entry : MODIFIERS.entrySet()) {
+            RegisteredModifier modifier = entry.getValue();
+            if (!modifier.source.equals(source)) {
+                rebuilt.put(entry.getKey(), modifier);
+                continue;
+            }
+            affected.addAll(targets(modifier));
+            touchesGlobal |= modifier.isGlobal();
+            removed++;
+            // Nowe reguły wchodzą w miejsce pierwszej starej reguły tego źródła
+            if (!inserted) {
+                inserted = true;
+                touchesGlobal |= putAll(rebuilt, entries, affected);
             }
+        }
+        if (!inserted) {
+            touchesGlobal |= putAll(rebuilt, entries, affected);
+        }
 
-            // Zapisz global_loot_modifiers.json
-            writeGlobalRegistry(dataPath, entries);
+        MODIFIERS.clear();
+        MODIFIERS.putAll(rebuilt);
 
-            LOGGER.success("Successfully wrote {} loot modifiers to disk", written);
+        if (compiled) {
+            recompile(affected, touchesGlobal);
+            LOGGER.action("Applied rules from '{}': {} removed, {} added, {} tables rebuilt",
+                    source, removed, entries.size(), touchesGlobal ? "all" : affected.size());
+        } else {
+            // Przy starcie plików może być wiele - zbiorczą linię wypisuje LootConfigManager
+            LOGGER.detail("Applied rules from '{}': {} removed, {} added", source, removed, entries.size());
+        }
+    }
 
-        } catch (IOException e) {
-            LOGGER.error("Failed to write loot modifiers to disk", e);
+    private static boolean putAll(Map<String, RegisteredModifier> target, Map<String, RegisteredModifier> entries,
+                                  Set<ResourceLocation> affected) {
+        boolean global = false;
+        for (Map.Entry<String, RegisteredModifier> entry : entries.entrySet()) {
+            RegisteredModifier modifier = entry.getValue();
+            target.put(entry.getKey(), modifier);
+            affected.addAll(targets(modifier));
+            global |= modifier.isGlobal();
         }
+        return global;
+    }
 
-        LOGGER.separator();
+    /**
+     * Kompiluje zarejestrowane reguły do indeksu tabel używanego przez lootapi:dispatch
+     */
+    public static synchronized void compile() {
+        mergePendingSessions();
+        expandPatterns(MODIFIERS.values());
+        LootRuleOptimizer optimizer = new LootRuleOptimizer();
+        LootRuleIndex.Builder index = LootRuleIndex.builder().optimizeWith(optimizer);
+        int count = 0;
+
+        for (Map.Entry<String, RegisteredModifier> entry : MODIFIERS.entrySet()) {
+            RegisteredModifier modifier = entry.getValue();
+            List<ResourceLocation> targets = targets(modifier);
+            // Wzorce bez żadnej pasującej tabeli - reguła nie może stać się globalna
+            if (targets.isEmpty() && !modifier.isGlobal()) {
+                continue;
+            }
+            IGlobalLootModifier rule = decode(entry.getKey(), modifier);
+            if (rule == null) {
+                continue;
+            }
+            index.add(targets, rule, modifier.condition);
+            count++;
+        }
+
+        LootRuleIndex built = index.build();
+        LootRuleIndex.install(built);
+        compiled = true;
+        LOGGER.success("Compiled {} loot modifiers into dispatch index ({} tables)", count, built.getTableCount());
+        if (optimizer.getRemovedCount() > 0) {
+            LOGGER.info("Rule optimizer: {}", optimizer.summary());
+        }
     }
 
     /**
-     * Zapisuje plik global_loot_modifiers.json
+     * Przebudowuje potoki tylko podanych tabel (albo cały indeks, gdy zmieniła się reguła globalna)
      */
-    private static void writeGlobalRegistry(Path dataPath, List<String> entries) throws IOException {
-        // Ścieżka: src/generated/resources/data/neoforge/loot_modifiers/global_loot_modifiers.json
-        Path globalPath = dataPath
-                .resolve("data")
-                .resolve("neoforge")
-                .resolve("loot_modifiers");
+    private static void recompile(Set<ResourceLocation> tables, boolean touchesGlobal) {
+        if (touchesGlobal) {
+            compile();
+            return;
+        }
 
-        Files.createDirectories(globalPath);
+        LootRuleIndex.Builder partial = LootRuleIndex.builder().optimizeWith(new LootRuleOptimizer());
+        for (Map.Entry<String, RegisteredModifier> entry : MODIFIERS.entrySet()) {
+            RegisteredModifier modifier = entry.getValue();
+            List<ResourceLocation> targets = modifier.isGlobal()
+                    ? modifier.tables
+                    : targets(modifier).stream().filter(tables::contains).toList();
+            if (!modifier.isGlobal() && targets.isEmpty()) {
+                continue;
+            }
+            IGlobalLootModifier rule = decode(entry.getKey(), modifier);
+            if (rule != null) {
+                partial.add(targets, rule, modifier.condition);
+            }
+        }
 
-        JsonObject global = new JsonObject();
-        global.addProperty("replace", false);
+        LootRuleIndex.install(LootRuleIndex.get().update(tables, partial.build()));
+    }
 
-        JsonArray entriesArray = new JsonArray();
-        for (String entry : entries) {
-            entriesArray.add(entry);
+    /**
+     * Ustawia znane ID tabel, przeciw którym rozwijane są wzorce (start serwera i /reload)
+     * Jeśli zestaw tabel się zmienił, a są reguły ze wzorcami - indeks jest kompilowany od nowa.
+     */
+    public static synchronized void setKnownTables(Collection<ResourceLocation> tables) {
+        Set<ResourceLocation> updated = Set.copyOf(tables);
+        if (updated.equals(knownTables)) {
+            return;
         }
-        global.add("entries", entriesArray);
+        knownTables = updated;
+        PATTERN_MATCHES.clear();
 
-        Path globalFile = globalPath.resolve("global_loot_modifiers.json");
+        if (!compiled) {
+            return;
+        }
+        for (RegisteredModifier modifier : MODIFIERS.values()) {
+            if (!modifier.patterns.isEmpty()) {
+                LOGGER.info("Loot table set changed ({} tables), re-expanding table patterns", updated.size());
+                compile();
+                return;
+            }
+        }
+    }
 
-        // Jeśli plik istnieje, merge'uj wpisy
-        if (Files.exists(globalFile)) {
-            try {
-                String existing = Files.readString(globalFile);
-                JsonObject existingJson = GSON.fromJson(existing, JsonObject.class);
+    /**
+     * Rozwija wzorce, które nie są jeszcze w pamięci podręcznej - wszystkie naraz przez jedno drzewo prefiksów
+     */
+    private static void expandPatterns(Collection<RegisteredModifier> modifiers) {
+        TablePatternTrie trie = new TablePatternTrie();
+        for (RegisteredModifier modifier : modifiers) {
+            for (TablePattern pattern : modifier.patterns) {
+                if (!PATTERN_MATCHES.containsKey(pattern)) {
+                    trie.add(pattern);
+                }
+            }
+        }
+        if (trie.isEmpty()) {
+            return;
+        }
 
-                if (existingJson.has("entries")) {
-                    JsonArray existingEntries = existingJson.getAsJsonArray("entries");
-                    for (int i = 0; i < existingEntries.size(); i++) {
-                        String entry = existingEntries.get(i).getAsString();
-                        if (!entries.contains(entry)) {
-                            entriesArray.add(entry);
-                        }
+        Map<TablePattern, Set<ResourceLocation>> expanded = trie.expand(knownTables);
+        for (RegisteredModifier modifier : modifiers) {
+            for (TablePattern pattern : modifier.patterns) {
+                if (!PATTERN_MATCHES.containsKey(pattern)) {
+                    Set<ResourceLocation> matches = expanded.getOrDefault(pattern, Set.of());
+                    PATTERN_MATCHES.put(pattern, matches);
+                    if (matches.isEmpty() && !knownTables.isEmpty()) {
+                        LOGGER.warn("Table pattern '{}' does not match any loot table", pattern);
                     }
                 }
-            } catch (Exception e) {
-                LOGGER.warn("Failed to merge existing global_loot_modifiers.json, overwriting", e);
             }
         }
+    }
 
-        Files.writeString(globalFile, GSON.toJson(global));
-        LOGGER.success("Wrote global registry: {}", globalFile.getFileName());
+    /**
+     * Tabele docelowe reguły: jawne tabele + tabele pasujące do wzorców
+     * Pusta lista dla reguły ze wzorcami oznacza "żadna tabela" - patrz {@link RegisteredModifier#isGlobal()}
+     */
+    private static List<ResourceLocation> targets(RegisteredModifier modifier) {
+        if (modifier.patterns.isEmpty()) {
+            return modifier.tables;
+        }
+        expandPatterns(List.of(modifier));
+        Set<ResourceLocation> targets = new LinkedHashSet<>(modifier.tables);
+        for (TablePattern pattern : modifier.patterns) {
+            targets.addAll(PATTERN_MATCHES.get(pattern));
+        }
+        return List.copyOf(targets);
+    }
+
+    /**
+     * Dekoduje JSON reguły przez MapCodec jej typu (wynik jest zapamiętywany)
+     */
+    private static IGlobalLootModifier decode(String id, RegisteredModifier modifier) {
+        if (modifier.decoded == null) {
+            modifier.decoded = IGlobalLootModifier.DIRECT_CODEC
+                    .parse(JsonOps.INSTANCE, modifier.rule)
+                    .resultOrPartial(error -> LOGGER.error("Failed to decode loot modifier '{}': {}", id, error))
+                    .orElse(null);
+        }
+        return modifier.decoded;
     }
 
     /**
      * Czyści wszystkie zarejestrowane modifiery
      */
-    public static void clear() {
-        int count = MODIFIERS.size();
+    public static synchronized void clear() {
+        int count = getModifierCount();
         MODIFIERS.clear();
+        PENDING_SESSIONS.clear();
+        SESSION_SEQUENCES.clear();
+        compiled = false;
+        LootRuleIndex.install(LootRuleIndex.EMPTY);
         LOGGER.action("Cleared {} loot modifiers", count);
     }
 
     /**
      * Zwraca liczbę zarejestrowanych modifierów
      */
-    public static int getModifierCount() {
-        return MODIFIERS.size();
+    public static synchronized int getModifierCount() {
+        int pending = 0;
+        for (Map<String, RegisteredModifier> session : PENDING_SESSIONS.values()) {
+            pending += session.size();
+        }
+        return MODIFIERS.size() + pending;
     }
 
     /**
      * Informacje o zarejstrowanych modifierach
      */
-    public static void printDebugInfo() {
+    public static synchronized void printDebugInfo() {
+        mergePendingSessions();
         LOGGER.separator();
         LOGGER.header("Registered Loot Modifiers");
         LOGGER.separator();
@@ -0,0 +1,201 @@
+package pl.mikof.lootapi.api;
+
+import com.google.gson.JsonObject;
+import com.mojang.serialization.JsonOps;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import net.neoforged.neoforge.common.loot.IGlobalLootModifier;
+import org.slf4j.LoggerFactory;
+import pl.mikof.lootapi.util.ColoredLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sesja rejestracji reguł jednego moda
+ *
+ * Sesja zbiera reguły lokalnie, bez blokad i bez logowania - walidacja, budowanie i dekodowanie
+ * odbywają się w {@link #commit()} na wątku moda, a do rejestru trafia gotowa paczka jednym
+ * wywołaniem pod blokadą. Sesje różnych modów mogą działać równolegle; pojedyncza sesja
+ * nie jest bezpieczna wątkowo (jeden wątek na sesję).
+ *
+ * ID reguł to "modId:typ_n" - numer pochodzi z licznika moda w rejestrze, więc kolejna sesja tego samego moda
+ * nie powtarza ID. Reguła z ID, które już jest w rejestrze, jest odrzucana przy {@link #commit()}.
+ * Kolejność w rejestrze: reguły sesji posortowane po ID moda, przed regułami z plików konfiguracyjnych.
+ *
+ * <pre>
+ * LootRegistrationSession session = LootTableAPI.openSession("mymod");
+ * session.addItem(LootTables.Blocks.STONE, Items.DIAMOND, 1, 1, 0.01f)
+ *        .multiplyDrops(LootTables.Blocks.IRON_ORE, 2.0f);
+ * session.commit();
+ * </pre>
+ */
+public final class LootRegistrationSession {
+    private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("LootRegistrationSession"));
+    // Ile błędów wypisać szczegółowo - reszta jest tylko liczona
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private final String modId;
+    private final List<LootModifierBuilder> staged = new ArrayList<>();
+    private boolean committed;
+
+    LootRegistrationSession(String modId) {
+        if (modId == null || modId.isEmpty()) {
+            throw new IllegalArgumentException("Session mod ID cannot be null or empty");
+        }
+        this.modId = modId;
+    }
+
+    /**
+     * Tworzy sesję moda - używaj przez {@code LootTableAPI.openSession(modId)}
+     */
+    public static LootRegistrationSession open(String modId) {
+        return new LootRegistrationSession(modId);
+    }
+
+    // ==================== REGUŁY ====================
+
+    public LootRegistrationSession addItem(ResourceLocation tableId, Item item) {
+        return addItem(tableId, item, 1, 1, 1.0f);
+    }
+
+    public LootRegistrationSession addItem(ResourceLocation tableId, Item item, int minCount, int maxCount, float chance) {
+        LootModifierBuilder builder = LootModifierBuilder.addItem(nextId("add_item"))
+                .forTable(tableId)
+                .withItem(item)
+                .withCount(minCount, maxCount);
+        if (chance < 1.0f) {
+            builder.withChance(chance);
+        }
+        return add(builder);
+    }
+
+    public LootRegistrationSession removeItem(ResourceLocation tableId, Item item) {
+        return add(LootModifierBuilder.removeItem(nextId("remove_item")).forTable(tableId).withItem(item));
+    }
+
+    public LootRegistrationSession removeItems(ResourceLocation tableId, Item... items) {
+        return add(LootModifierBuilder.removeItems(nextId("remove_items")).forTable(tableId).withItems(items));
+    }
+
+    public LootRegistrationSession replaceItem(ResourceLocation tableId, Item oldItem, Item newItem) {
+        return add(LootModifierBuilder.replaceItem(nextId("replace_item"))
+                .forTable(tableId)
+                .withOldItem(oldItem)
+                .withNewItem(newItem));
+    }
+
+    public LootRegistrationSession replaceItems(ResourceLocation tableId, Map<Item, Item> replacements) {
+        LootModifierBuilder builder = LootModifierBuilder.replaceItems(nextId("replace_items")).forTable(tableId);
+        replacements.forEach(builder::withReplacement);
+        return add(builder);
+    }
+
+    public LootRegistrationSession multiplyDrops(ResourceLocation tableId, float multiplier) {
+        return add(LootModifierBuilder.multiplyDrops(nextId("multiply_drops")).forTable(tableId).withMultiplier(multiplier));
+    }
+
+    public LootRegistrationSession disableLootTable(ResourceLocation tableId) {
+        return add(LootModifierBuilder.clearTable(nextId("clear_table")).forTable(tableId));
+    }
+
+    public LootRegistrationSession setOnlyDrop(ResourceLocation tableId, Item item, int minCount, int maxCount) {
+        return add(LootModifierBuilder.setOnlyDrop(nextId("set_only_drop"))
+                .forTable(tableId)
+                .withItem(item)
+                .withCount(minCount, maxCount));
+    }
+
+    public LootRegistrationSession deliverToInventory(ResourceLocation tableId) {
+        return add(LootModifierBuilder.deliverToInventory(nextId("deliver_to_inventory")).forTable(tableId));
+    }
+
+    public LootRegistrationSession addWeightedChoice(ResourceLocation tableId, Map<Item, Integer> weights) {
+        LootModifierBuilder builder = LootModifierBuilder.weightedChoice(nextId("weighted_choice")).forTable(tableId);
+        weights.forEach(builder::withWeightedItem);
+        return add(builder);
+    }
+
+    /**
+     * Dodaje własny builder (ID buildera zostaje poprzedzone ID moda)
+     */
+    public LootRegistrationSession add(LootModifierBuilder builder) {
+        checkNotCommitted();
+        staged.add(builder);
+        return this;
+    }
+
+    // ==================== ZATWIERDZANIE ====================
+
+    /**
+     * Waliduje i dekoduje wszystkie reguły, a potem rejestruje je naraz
+     * Błędne reguły są pomijane i zgłaszane w jednym podsumowaniu
+     * @return liczba zarejestrowanych reguł
+     */
+    public int commit() {
+        checkNotCommitted();
+        committed = true;
+
+        List<LootModifierRegistry.CompiledRule> rules = new ArrayList<>(staged.size());
+        List<String> errors = new ArrayList<>();
+        for (LootModifierBuilder builder : staged) {
+            String id = builder.getModifierId().startsWith(modId + ":")
+                    ? builder.getModifierId()
+                    : modId + ":" + builder.getModifierId();
+            try {
+                JsonObject json = builder.buildRule();
+                IGlobalLootModifier modifier = IGlobalLootModifier.DIRECT_CODEC
+                        .parse(JsonOps.INSTANCE, json)
+                        .getOrThrow(IllegalStateException::new);
+                rules.add(new LootModifierRegistry.CompiledRule(id, builder.getTargetTables(),
+                        builder.getTablePatterns(), builder.getCondition(), modifier));
+            } catch (RuntimeException e) {
+                errors.add(id + ": " + e.getMessage());
+            }
+        }
+        staged.clear();
+
+        List<String> duplicates = LootModifierRegistry.commitSession(modId, rules);
+        for (String duplicate : duplicates) {
+            errors.add(duplicate + ": duplicate rule ID");
+        }
+        int registered = rules.size() - duplicates.size();
+
+        if (errors.isEmpty()) {
+            LOGGER.action("Committed {} rules from {}", registered, modId);
+        } else {
+            LOGGER.warn("Committed {} rules from {}, {} rejected:", registered, modId, errors.size());
+            errors.stream().limit(MAX_REPORTED_ERRORS).forEach(error -> LOGGER.warn("  {}", error));
+            if (errors.size() > MAX_REPORTED_ERRORS) {
+                LOGGER.warn("  ... and {} more", errors.size() - MAX_REPORTED_ERRORS);
+            }
+        }
+        return registered;
+    }
+
+    public String getModId() {
+        return modId;
+    }
+
+    /**
+     * Liczba reguł czekających na zatwierdzenie
+     */
+    public int getStagedCount() {
+        return staged.size();
+    }
+
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    private String nextId(String type) {
+        return modId + ":" + type + "_" + LootModifierRegistry.nextSessionSequence(modId);
+    }
+
+    private void checkNotCommitted() {
+        if (committed) {
+            throw new IllegalStateException("Session for " + modId + " was already committed");
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package pl.mikof.lootapi.api;
+
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Wzorzec ID tabeli z gwiazdkami, np. "minecraft:blocks/*_ore" albo "*:entities/*"
+ *
+ * Gwiazdka pasuje do dowolnego ciągu znaków w obrębie przestrzeni nazw albo ścieżki
+ * (także do "/"), ale nigdy nie przechodzi przez ":". Wzorzec bez ":" dotyczy przestrzeni "minecraft".
+ * Wzorce są rozwijane do konkretnych tabel przy kompilacji indeksu ({@link TablePatternTrie}) -
+ * podczas losowania nic nie jest dopasowywane.
+ */
+public record TablePattern(String pattern, String namespace, String path) {
+
+    /**
+     * Czy tekst jest wzorcem (zawiera gwiazdkę)
+     */
+    public static boolean isPattern(String tableId) {
+        return tableId.indexOf('*') >= 0;
+    }
+
+    /**
+     * Parsuje wzorzec
+     * @throws IllegalArgumentException przy pustym wzorcu albo niedozwolonych znakach
+     */
+    public static TablePattern parse(String pattern) {
+        if (pattern == null || pattern.isEmpty()) {
+            throw new IllegalArgumentException("Table pattern cannot be null or empty");
+        }
+        int separator = pattern.indexOf(':');
+        String namespace = separator < 0 ? ResourceLocation.DEFAULT_NAMESPACE : pattern.substring(0, separator);
+        String path = separator < 0 ? pattern : pattern.substring(separator + 1);
+        if (path.indexOf(':') >= 0) {
+            throw new IllegalArgumentException("Invalid table pattern '" + pattern + "': more than one ':'");
+        }
+        for (int i = 0; i < namespace.length(); i++) {
+            char c = namespace.charAt(i);
+            if (c != '*' && !ResourceLocation.validNamespaceChar(c)) {
+                throw new IllegalArgumentException("Invalid character '" + c + "' in table pattern namespace: " + pattern);
+            }
+        }
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c != '*' && !ResourceLocation.validPathChar(c)) {
+                throw new IllegalArgumentException("Invalid character '" + c + "' in table pattern path: " + pattern);
+            }
+        }
+        return new TablePattern(namespace + ":" + path, namespace, path);
+    }
+
+    /**
+     * Część wzorca przed pierwszą gwiazdką - klucz w drzewie prefiksów
+     */
+    public String literalPrefix() {
+        int star = pattern.indexOf('*');
+        return star < 0 ? pattern : pattern.substring(0, star);
+    }
+
+    /**
+     * Czy ID tabeli pasuje do wzorca
+     */
+    public boolean matches(ResourceLocation tableId) {
+        return glob(namespace, tableId.getNamespace()) && glob(path, tableId.getPath());
+    }
+
+    /**
+     * Dopasowanie z gwiazdkami (zachłanne, z powrotem do ostatniej gwiazdki - liniowo dla typowych wzorców)
+     */
+    static boolean glob(String pattern, String text) {
+        int p = 0;
+        int t = 0;
+        int star = -1;
+        int starText = 0;
+        while (t < text.length()) {
+            if (p < pattern.length() && pattern.charAt(p) != '*' && pattern.charAt(p) == text.charAt(t)) {
+                p++;
+                t++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                starText = t;
+            } else if (star >= 0) {
+                p = star + 1;
+                t = ++starText;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,85 @@
+package pl.mikof.lootapi.api;
+
+import it.unimi.dsi.fastutil.chars.Char2ObjectOpenHashMap;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drzewo prefiksów wzorców tabel - rozwija wzorce do konkretnych ID tabel przy kompilacji
+ *
+ * Każdy wzorzec wisi w węźle swojego stałego prefiksu (części przed pierwszą gwiazdką).
+ * ID tabeli przechodzi drzewo znak po znaku, więc pełne dopasowanie jest sprawdzane tylko
+ * dla wzorców, których prefiks się zgadza - zamiast tabele × wzorce.
+ */
+public final class TablePatternTrie {
+    private final Node root = new Node();
+    private int size;
+
+    private static final class Node {
+        private final Char2ObjectOpenHashMap<Node> children = new Char2ObjectOpenHashMap<>();
+        private final List<TablePattern> patterns = new ArrayList<>(0);
+    }
+
+    public void add(TablePattern pattern) {
+        Node node = root;
+        String prefix = pattern.literalPrefix();
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node());
+        }
+        if (!node.patterns.contains(pattern)) {
+            node.patterns.add(pattern);
+            size++;
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Wzorce pasujące do tabeli
+     */
+    public void collectMatches(ResourceLocation tableId, Collection<TablePattern> out) {
+        String id = tableId.toString();
+        Node node = root;
+        collect(node, tableId, out);
+        for (int i = 0; i < id.length(); i++) {
+            node = node.children.get(id.charAt(i));
+            if (node == null) {
+                return;
+            }
+            collect(node, tableId, out);
+        }
+    }
+
+    private static void collect(Node node, ResourceLocation tableId, Collection<TablePattern> out) {
+        for (TablePattern pattern : node.patterns) {
+            if (pattern.matches(tableId)) {
+                out.add(pattern);
+            }
+        }
+    }
+
+    /**
+     * Rozwija wszystkie wzorce: wzorzec → pasujące tabele (w kolejności {@code knownTables})
+     */
+    public Map<TablePattern, Set<ResourceLocation>> expand(Collection<ResourceLocation> knownTables) {
+        Map<TablePattern, Set<ResourceLocation>> expanded = new HashMap<>();
+        List<TablePattern> matches = new ArrayList<>();
+        for (ResourceLocation table : knownTables) {
+            collectMatches(table, matches);
+            for (TablePattern pattern : matches) {
+                expanded.computeIfAbsent(pattern, p -> new LinkedHashSet<>()).add(table);
+            }
+            matches.clear();
+        }
+        return expanded;
+    }
+}
@@ -0,0 +1,386 @@
+package pl.mikof.lootapi.command;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.LongArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.SuggestionProvider;
+import net.minecraft.ChatFormatting;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.SharedSuggestionProvider;
+import net.minecraft.commands.arguments.ResourceLocationArgument;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.neoforged.neoforge.event.RegisterCommandsEvent;
+import pl.mikof.lootapi.LootAPI;
+import pl.mikof.lootapi.glm.LootCalculator;
+import pl.mikof.lootapi.glm.LootMetrics;
+import pl.mikof.lootapi.glm.LootPipeline;
+import pl.mikof.lootapi.glm.LootRuleIndex;
+import pl.mikof.lootapi.glm.LootRuleOptimizer;
+import pl.mikof.lootapi.simulation.LootAnalysisReport;
+import pl.mikof.lootapi.simulation.LootSimulator;
+import pl.mikof.lootapi.simulation.SimulationResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToLongFunction;
+
+/**
+ * Komenda /lootapi - podgląd liczników reguł, symulacja i analiza tabel
+ *
+ * /lootapi stats                    - 10 najdroższych tabel + podsumowanie typów
+ * /lootapi stats top <n> [by]       - n tabel posortowanych po wybranym liczniku
+ * /lootapi stats types [by]         - wszystkie typy modifierów
+ * /lootapi stats reset              - zeruje liczniki
+ * /lootapi stats <table>            - szczegóły jednej tabeli
+ * /lootapi simulate <table> [rolls] [seed] - rozkład dropów tabeli razem z regułami (w tle)
+ * /lootapi analyze                  - dokładne rozkłady reguł wszystkich tabel, raport JSON
+ * /lootapi analyze <table>          - dokładne rozkłady reguł jednej tabeli
+ * /lootapi verify                   - czy zoptymalizowane reguły mają ten sam rozkład co oryginalne
+ */
+public class LootAPICommand {
+    private static final int DEFAULT_TOP = 10;
+    private static final int MAX_SIMULATED_ITEMS = 20;
+
+    private static final SuggestionProvider<CommandSourceStack> TRACKED_TABLES = (context, builder) ->
+            SharedSuggestionProvider.suggestResource(LootMetrics.getTables().keySet(), builder);
+    private static final SuggestionProvider<CommandSourceStack> LOOT_TABLES = (context, builder) ->
+            SharedSuggestionProvider.suggestResource(context.getSource().getServer().reloadableRegistries()
+                    .getKeys(Registries.LOOT_TABLE), builder);
+    private static final SuggestionProvider<CommandSourceStack> SORT_KEYS = (context, builder) ->
+            SharedSuggestionProvider.suggest(Arrays.stream(Sort.values()).map(Sort::key), builder);
+
+    /**
+     * Klucze sortowania
+     */
+    private enum Sort {
+        INVOCATIONS(LootMetrics.Counters::getInvocations),
+        HITS(LootMetrics.Counters::getHits),
+        TIME(LootMetrics.Counters::getNanos),
+        ALLOCATED(LootMetrics.Counters::getBytesAllocated),
+        ADDED(LootMetrics.Counters::getStacksAdded),
+        REMOVED(LootMetrics.Counters::getStacksRemoved);
+
+        private final ToLongFunction<LootMetrics.Counters> value;
+
+        Sort(ToLongFunction<LootMetrics.Counters> value) {
+            this.value = value;
+        }
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        static Sort byKey(String key) {
+            for (Sort sort : values()) {
+                if (sort.key().equals(key)) {
+                    return sort;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Rejestruje komendę (RegisterCommandsEvent na NeoForge.EVENT_BUS)
+     */
+    public static void register(RegisterCommandsEvent event) {
+        event.getDispatcher().register(Commands.literal(LootAPI.MOD_ID)
+                .requires(source -> source.hasPermission(Commands.LEVEL_GAMEMASTERS))
+                .then(stats())
+                .then(simulate())
+                .then(analyze())
+                .then(Commands.literal("verify")
+                        .executes(context -> verify(context.getSource()))));
+    }
+
+    private static LiteralArgumentBuilder<CommandSourceStack> stats() {
+        return Commands.literal("stats")
+                .executes(context -> {
+                    showTables(context.getSource(), DEFAULT_TOP, Sort.TIME);
+                    return showTypes(context.getSource(), Sort.TIME);
+                })
+                .then(Commands.literal("top")
+                        .then(Commands.argument("count", IntegerArgumentType.integer(1, 100))
+                                .executes(context -> showTables(context.getSource(),
+                                        IntegerArgumentType.getInteger(context, "count"), Sort.TIME))
+                                .then(Commands.argument("by", StringArgumentType.word())
+                                        .suggests(SORT_KEYS)
+                                        .executes(context -> {
+                                            Sort sort = sortArgument(context);
+                                            return sort == null ? 0 : showTables(context.getSource(),
+                                                    IntegerArgumentType.getInteger(context, "count"), sort);
+                                        }))))
+                .then(Commands.literal("types")
+                        .executes(context -> showTypes(context.getSource(), Sort.TIME))
+                        .then(Commands.argument("by", StringArgumentType.word())
+                                .suggests(SORT_KEYS)
+                                .executes(context -> {
+                                    Sort sort = sortArgument(context);
+                                    return sort == null ? 0 : showTypes(context.getSource(), sort);
+                                })))
+                .then(Commands.literal("reset")
+                        .executes(context -> {
+                            LootMetrics.reset();
+                            context.getSource().sendSuccess(() -> Component.literal("LootAPI stats reset"), true);
+                            return 1;
+                        }))
+                .then(Commands.argument("table", ResourceLocationArgument.id())
+                        .suggests(TRACKED_TABLES)
+                        .executes(context -> showTable(context.getSource(),
+                                ResourceLocationArgument.getId(context, "table"))));
+    }
+
+    private static LiteralArgumentBuilder<CommandSourceStack> simulate() {
+        return Commands.literal("simulate")
+                .then(Commands.argument("table", ResourceLocationArgument.id())
+                        .suggests(LOOT_TABLES)
+                        .executes(context -> simulate(context.getSource(),
+                                ResourceLocationArgument.getId(context, "table"), LootSimulator.DEFAULT_ROLLS, 0L))
+                        .then(Commands.argument("rolls", LongArgumentType.longArg(1, 100_000_000))
+                                .executes(context -> simulate(context.getSource(),
+                                        ResourceLocationArgument.getId(context, "table"),
+                                        LongArgumentType.getLong(context, "rolls"), 0L))
+                                .then(Commands.argument("seed", LongArgumentType.longArg())
+                                        .executes(context -> simulate(context.getSource(),
+                                                ResourceLocationArgument.getId(context, "table"),
+                                                LongArgumentType.getLong(context, "rolls"),
+                                                LongArgumentType.getLong(context, "seed"))))));
+    }
+
+    private static int simulate(CommandSourceStack source, ResourceLocation tableId, long rolls, long seed) {
+        MinecraftServer server = source.getServer();
+        if (!LootSimulator.hasTable(server, tableId)) {
+            source.sendFailure(Component.literal("Unknown loot table " + tableId));
+            return 0;
+        }
+
+        Optional<CompletableFuture<SimulationResult>> running = LootSimulator.simulateAsync(source.getLevel(), tableId, rolls, seed);
+        if (running.isEmpty()) {
+            source.sendFailure(Component.literal("Another simulation is already running"));
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.literal("Simulating " + rolls + " rolls of " + tableId + "...")
+                .withStyle(ChatFormatting.GRAY), false);
+        // Wynik wraca na wątek serwera
+        running.get().whenComplete((result, error) -> server.execute(() -> {
+            if (error != null) {
+                source.sendFailure(Component.literal("Simulation of " + tableId + " failed: " + error.getMessage()));
+                return;
+            }
+            showSimulation(source, result);
+        }));
+        return 1;
+    }
+
+    private static void showSimulation(CommandSourceStack source, SimulationResult result) {
+        source.sendSuccess(() -> Component.literal("Simulated " + result.rolls() + " rolls of " + result.table()
+                + " in " + millis(result.elapsedNanos()) + " ms (seed " + result.seed() + ")")
+                .withStyle(ChatFormatting.GOLD), false);
+        if (result.items().isEmpty()) {
+            source.sendSuccess(() -> Component.literal("  Nothing dropped"), false);
+            return;
+        }
+        result.items().stream().limit(MAX_SIMULATED_ITEMS).forEach(stats ->
+                source.sendSuccess(() -> Component.literal("  " + LootSimulator.describe(stats)), false));
+        if (result.items().size() > MAX_SIMULATED_ITEMS) {
+            source.sendSuccess(() -> Component.literal("  ... and " + (result.items().size() - MAX_SIMULATED_ITEMS)
+                    + " more items (full list in the server log)"), false);
+            LootSimulator.log(result);
+        }
+    }
+
+    private static LiteralArgumentBuilder<CommandSourceStack> analyze() {
+        return Commands.literal("analyze")
+                .executes(context -> analyzeAll(context.getSource()))
+                .then(Commands.argument("table", ResourceLocationArgument.id())
+                        .suggests(LOOT_TABLES)
+                        .executes(context -> analyzeTable(context.getSource(),
+                                ResourceLocationArgument.getId(context, "table"))));
+    }
+
+    private static int analyzeAll(CommandSourceStack source) {
+        LootAnalysisReport report = LootAnalysisReport.analyzeAll();
+        Path file = LootAnalysisReport.defaultPath();
+        try {
+            report.write(file);
+        } catch (IOException e) {
+            LootAPI.getLogger().error("Failed to write analysis report", e);
+            source.sendFailure(Component.literal("Failed to write analysis report: " + e.getMessage()));
+            return 0;
+        }
+
+        long unsupported = report.unsupportedCount();
+        source.sendSuccess(() -> Component.literal("Analyzed " + report.tables().size() + " loot tables in "
+                + millis(report.elapsedNanos()) + " ms" + (unsupported > 0 ? " (" + unsupported + " not computable)" : ""))
+                .withStyle(ChatFormatting.GOLD), false);
+        source.sendSuccess(() -> Component.literal("  Report: " + file), false);
+        return report.tables().size();
+    }
+
+    private static int analyzeTable(CommandSourceStack source, ResourceLocation tableId) {
+        LootCalculator.Analysis analysis = LootAnalysisReport.analyze(tableId);
+        source.sendSuccess(() -> Component.literal("Loot table " + tableId + " (" + analysis.ruleCount() + " rules)")
+                .withStyle(ChatFormatting.GOLD), false);
+        if (!analysis.supported()) {
+            source.sendFailure(Component.literal("  Rules of this table cannot be computed exactly, use /lootapi simulate"));
+            return 0;
+        }
+
+        source.sendSuccess(() -> Component.literal(analysis.keepsGeneratedLoot()
+                ? "  Generated loot: kept, mean x" + format(analysis.otherItems().meanFactor())
+                : "  Generated loot: discarded"), false);
+        analysis.generated().forEach((item, fate) -> source.sendSuccess(() -> Component.literal("  " + item + " -> "
+                + (fate.item() == null ? "removed" : fate.item() + ", mean x" + format(fate.meanFactor()))), false));
+        analysis.added().forEach((item, distribution) -> source.sendSuccess(() -> Component.literal(String.format(Locale.ROOT,
+                "  +%s: mean %.4f, sd %.4f, p50 %d, p90 %d, p99 %d, max %d, drop rate %.2f%%",
+                item, distribution.mean(), Math.sqrt(distribution.variance()), distribution.percentile(0.50),
+                distribution.percentile(0.90), distribution.percentile(0.99), distribution.max(),
+                distribution.dropRate() * 100.0)), false));
+        return 1;
+    }
+
+    private static int verify(CommandSourceStack source) {
+        LootRuleIndex index = LootRuleIndex.get();
+        int verified = 0;
+        int skipped = 0;
+        int conditional = 0;
+        List<String> mismatches = new ArrayList<>();
+        for (Map.Entry<ResourceLocation, LootPipeline> entry : index.getPipelines().entrySet()) {
+            // Tabele z regułami warunkowymi nie przechodzą przez optymalizator - nie ma czego weryfikować
+            if (entry.getValue().isConditional()) {
+                conditional++;
+                continue;
+            }
+            Boolean equivalent = LootRuleOptimizer.verify(entry.getValue().getRules());
+            if (equivalent == null) {
+                skipped++;
+            } else if (equivalent) {
+                verified++;
+            } else {
+                mismatches.add(entry.getKey().toString());
+            }
+        }
+
+        int checked = verified;
+        int notComputable = skipped;
+        int notOptimized = conditional;
+        source.sendSuccess(() -> Component.literal("Optimized rules match original distributions in " + checked
+                + " tables (" + notComputable + " not computable, " + notOptimized + " conditional, not optimized)")
+                .withStyle(ChatFormatting.GOLD), false);
+        for (String table : mismatches) {
+            source.sendFailure(Component.literal("  Distribution differs: " + table));
+        }
+        if (!mismatches.isEmpty()) {
+            LootAPI.getLogger().error("Rule optimizer changed distributions of: {}", String.join(", ", mismatches));
+        }
+        return mismatches.isEmpty() ? 1 : 0;
+    }
+
+    private static Sort sortArgument(CommandContext<CommandSourceStack> context) {
+        String key = StringArgumentType.getString(context, "by");
+        Sort sort = Sort.byKey(key);
+        if (sort == null) {
+            context.getSource().sendFailure(Component.literal("Unknown sort key '" + key + "', expected one of: "
+                    + String.join(", ", Arrays.stream(Sort.values()).map(Sort::key).toList())));
+        }
+        return sort;
+    }
+
+    private static int showTables(CommandSourceStack source, int count, Sort sort) {
+        List<Map.Entry<ResourceLocation, LootMetrics.Counters>> top = sorted(LootMetrics.getTables(), sort, count);
+        source.sendSuccess(() -> Component.literal("Top " + top.size() + " loot tables by " + sort.key()
+                + " (" + LootMetrics.getTables().size() + " tracked)").withStyle(ChatFormatting.GOLD), false);
+        for (Map.Entry<ResourceLocation, LootMetrics.Counters> entry : top) {
+            LootMetrics.Counters counters = entry.getValue();
+            source.sendSuccess(() -> line(entry.getKey(), counters, "rolls", counters.getHits()), false);
+        }
+        return top.size();
+    }
+
+    private static int showTypes(CommandSourceStack source, Sort sort) {
+        List<Map.Entry<ResourceLocation, LootMetrics.Counters>> types = sorted(LootMetrics.getTypes(), sort, Integer.MAX_VALUE);
+        source.sendSuccess(() -> Component.literal("Modifier types by " + sort.key()).withStyle(ChatFormatting.GOLD), false);
+        for (Map.Entry<ResourceLocation, LootMetrics.Counters> entry : types) {
+            LootMetrics.Counters counters = entry.getValue();
+            source.sendSuccess(() -> line(entry.getKey(), counters, "calls", counters.getInvocations()), false);
+        }
+        return types.size();
+    }
+
+    private static int showTable(CommandSourceStack source, ResourceLocation tableId) {
+        LootMetrics.Counters counters = LootMetrics.getTables().get(tableId);
+        if (counters == null) {
+            source.sendFailure(Component.literal("No stats for loot table " + tableId));
+            return 0;
+        }
+
+        long rolls = counters.getInvocations();
+        long hits = counters.getHits();
+        source.sendSuccess(() -> Component.literal("Loot table " + tableId).withStyle(ChatFormatting.GOLD), false);
+        source.sendSuccess(() -> Component.literal("  Rolls: " + rolls + ", with rules: " + hits), false);
+        source.sendSuccess(() -> Component.literal("  Time: " + millis(counters.getNanos()) + " ms total, "
+                + micros(perCall(counters.getNanos(), hits)) + " µs/roll"), false);
+        source.sendSuccess(() -> Component.literal("  Stacks: +" + counters.getStacksAdded()
+                + " / -" + counters.getStacksRemoved()), false);
+        source.sendSuccess(() -> Component.literal("  Allocated: " + allocated(counters, hits)), false);
+        return 1;
+    }
+
+    private static List<Map.Entry<ResourceLocation, LootMetrics.Counters>> sorted(
+            Map<ResourceLocation, LootMetrics.Counters> counters, Sort sort, int limit) {
+        return counters.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<ResourceLocation, LootMetrics.Counters> entry) ->
+                        sort.value.applyAsLong(entry.getValue())).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * @param measuredCalls liczba wykonań, dla których mierzono czas i alokacje
+     */
+    private static Component line(ResourceLocation id, LootMetrics.Counters counters, String unit, long measuredCalls) {
+        return Component.literal("  " + id).withStyle(ChatFormatting.YELLOW)
+                .append(Component.literal(": " + counters.getInvocations() + " " + unit + ", " + counters.getHits() + " hits, "
+                        + millis(counters.getNanos()) + " ms, +" + counters.getStacksAdded()
+                        + "/-" + counters.getStacksRemoved() + " stacks, " + allocated(counters, measuredCalls))
+                        .withStyle(ChatFormatting.WHITE));
+    }
+
+    private static String allocated(LootMetrics.Counters counters, long calls) {
+        if (!LootMetrics.isAllocationTrackingSupported()) {
+            return "allocations off (-Dlootapi.metrics.allocations=true)";
+        }
+        return counters.getBytesAllocated() / 1024 + " KiB (" + perCall(counters.getBytesAllocated(), calls) + " B/call)";
+    }
+
+    private static long perCall(long total, long calls) {
+        return calls == 0 ? 0 : total / calls;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000.0);
+    }
+}
@@ -1,18 +1,36 @@
 package pl.mikof.lootapi.config;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.Items;
 import net.neoforged.fml.loading.FMLPaths;
 import org.slf4j.LoggerFactory;
-import pl.mikof.lootapi.LootTableAPI;
+import pl.mikof.lootapi.api.LootModifierBuilder;
+import pl.mikof.lootapi.api.LootModifierRegistry;
 import pl.mikof.lootapi.util.ColoredLogger;
 
+import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Manager konfiguracji - ładuje modyfikacje z plików JSON
@@ -20,14 +38,45 @@ import java.nio.file.Path;
 public class LootConfigManager {
     private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("LootConfigManager"));
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static int loadedModifications = 0;
+
+    // Kolejność rejestracji reguł z sekcji pliku (clear_table z disabled_tables odrzuca wszystko przed sobą,
+    // deliver_to_inventory to ustawienie tabeli, a nie etap)
+    private static final List<String> SECTION_ORDER = List.of("modifications", "removals", "replacements",
+            "weighted_choices", "multipliers", "disabled_tables", "deliver_to_inventory");
+
+    /**
+     * Reguły zebrane z jednego pliku konfiguracyjnego
+     * Źródło w rejestrze = nazwa pliku, więc hot reload podmienia tylko reguły z tego pliku
+     */
+    static final class ConfigBatch {
+        final String source;
+        final List<LootModifierBuilder> builders = new ArrayList<>();
+        private final String idPrefix;
+        private int counter = 0;
+
+        ConfigBatch(Path configFile) {
+            String fileName = configFile.getFileName().toString();
+            this.source = "config:" + fileName;
+            this.idPrefix = "config_" + fileName.substring(0, fileName.length() - ".json".length()) + "_";
+        }
+
+        String nextId(String prefix) {
+            return idPrefix + prefix + "_" + (counter++);
+        }
+    }
+
+    /**
+     * Zwraca katalog konfiguracji (config/lootapi)
+     */
+    public static Path getConfigDir() {
+        return FMLPaths.CONFIGDIR.get().resolve("lootapi");
+    }
 
     /**
      * Ładuje wszystkie pliki konfiguracyjne
      */
     public static void loadAllConfigs() {
-        Path configDir = FMLPaths.CONFIGDIR.get().resolve("lootapi");
-        loadedModifications = 0;
+        Path configDir = getConfigDir();
 
         LOGGER.header("Loading LootAPI configurations...");
 
@@ -39,17 +88,24 @@ public class LootConfigManager {
                 LOGGER.init("Created config directory: {}", configDir);
             }
 
-            // Załaduj wszystkie pliki .json
-            long fileCount = Files.list(configDir)
-                    .filter(path -> path.toString().endsWith(".json"))
-                    .peek(LootConfigManager::loadConfigFile)
-                    .count();
+            // Pliki .json posortowane po nazwie - ta kolejność decyduje o kolejności reguł
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(configDir)) {
+                files = listing
+                        .filter(LootConfigManager::isConfigFile)
+                        .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                        .toList();
+            }
 
+            long fileCount = files.size();
             if (fileCount == 0) {
                 LOGGER.info("No configuration files found in {}", configDir);
                 LOGGER.info("Create .json files to add loot modifications");
             } else {
-                LOGGER.success("Loaded {} modifications from {} config files", loadedModifications, fileCount);
+                byte[] snapshotKey = computeSnapshotKey(files);
+                if (snapshotKey == null || !loadFromSnapshot(snapshotKey, files.size())) {
+                    loadAndSnapshot(files, snapshotKey);
+                }
             }
 
         } catch (IOException e) {
@@ -59,340 +115,788 @@ public class LootConfigManager {
         LOGGER.separator();
     }
 
+    private static byte[] computeSnapshotKey(List<Path> files) {
+        try {
+            return LootRuleSnapshot.computeKey(files);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to compute rule snapshot key: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
-     * Ładuje pojedynczy plik konfiguracyjny
+     * Ładuje reguły ze snapshotu, jeśli pliki, mody i rejestry się nie zmieniły
+     * @return false, jeśli trzeba sparsować pliki
      */
-    private static void loadConfigFile(Path configFile) {
-        try {
-            LOGGER.action("Loading config: {}", configFile.getFileName());
+    private static boolean loadFromSnapshot(byte[] key, int fileCount) {
+        List<LootRuleSnapshot.Source> sources = LootRuleSnapshot.read(key);
+        if (sources == null) {
+            return false;
+        }
 
-            // Walidacja pliku
-            if (!Files.exists(configFile)) {
-                LOGGER.error("Config file does not exist: {}", configFile);
-                return;
-            }
+        int loadedModifications = 0;
+        for (LootRuleSnapshot.Source source : sources) {
+            LootModifierRegistry.replaceSourceCompiled(source.name(), source.rules());
+            loadedModifications += source.rules().size();
+        }
+        LOGGER.success("Loaded {} modifications from rule snapshot ({} config files)", loadedModifications, fileCount);
+        return true;
+    }
 
-            if (!Files.isReadable(configFile)) {
-                LOGGER.error("Config file is not readable: {}", configFile);
-                return;
+    /**
+     * Parsuje pliki i zapisuje snapshot dla następnego startu
+     */
+    private static void loadAndSnapshot(List<Path> files, byte[] snapshotKey) {
+        // Parsowanie i walidacja równolegle, rejestracja po kolei w kolejności nazw plików
+        int loadedModifications = 0;
+        List<String> sources = new ArrayList<>(files.size());
+        boolean complete = true;
+        for (ConfigBatch batch : loadConfigFiles(files)) {
+            if (batch == null) {
+                complete = false;
+                continue;
             }
+            apply(batch);
+            sources.add(batch.source);
+            loadedModifications += batch.builders.size();
+        }
+        LOGGER.success("Loaded {} modifications from {} config files", loadedModifications, files.size());
 
-            String json = Files.readString(configFile);
+        // Błędny plik nie trafia do snapshotu - następny start musi go znowu sparsować i zgłosić błąd
+        if (!complete) {
+            LootRuleSnapshot.invalidate();
+        } else if (snapshotKey != null) {
+            LootRuleSnapshot.write(snapshotKey, sources);
+        }
+    }
 
-            if (json == null || json.trim().isEmpty()) {
-                LOGGER.warn("Config file is empty: {}", configFile.getFileName());
-                return;
+    /**
+     * Parsuje pliki równolegle (wątki wirtualne)
+     * @return wyniki w tej samej kolejności co {@code files}, niezależnie od kolejności ukończenia
+     */
+    private static List<ConfigBatch> loadConfigFiles(List<Path> files) {
+        List<ConfigBatch> batches = new ArrayList<>(files.size());
+        if (files.size() < 2) {
+            for (Path file : files) {
+                batches.add(loadConfigFile(file));
             }
+            return batches;
+        }
 
-            JsonObject root;
-            try {
-                root = JsonParser.parseString(json).getAsJsonObject();
-            } catch (JsonSyntaxException e) {
-                LOGGER.error("Invalid JSON syntax in {}: {}", configFile.getFileName(), e.getMessage());
-                return;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ConfigBatch>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                futures.add(executor.submit(() -> loadConfigFile(file)));
             }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    batches.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    LOGGER.error("Unexpected error loading config: {}", files.get(i).getFileName(), e.getCause());
+                    batches.add(null);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.error("Interrupted while loading configs", e);
+                    break;
+                }
+            }
+        }
+        return batches;
+    }
 
-            int modificationsInFile = 0;
+    /**
+     * Przeładowuje jeden plik (hot reload) - usunięty plik usuwa swoje reguły
+     */
+    static ConfigBatch reloadConfigFile(Path configFile) {
+        if (!Files.exists(configFile)) {
+            LOGGER.action("Config removed: {}", configFile.getFileName());
+            return new ConfigBatch(configFile);
+        }
+        return loadConfigFile(configFile);
+    }
 
-            // Przetwórz modyfikacje
-            if (root.has("modifications")) {
-                modificationsInFile += processModifications(root.getAsJsonArray("modifications"));
-            }
+    /**
+     * Podmienia w rejestrze reguły pochodzące z pliku
+     */
+    static void apply(ConfigBatch batch) {
+        if (batch != null) {
+            LootModifierRegistry.replaceSource(batch.source, batch.builders);
+        }
+    }
 
-            // Przetwórz usunięcia
-            if (root.has("removals")) {
-                modificationsInFile += processRemovals(root.getAsJsonArray("removals"));
-            }
+    static boolean isConfigFile(Path path) {
+        return path.toString().endsWith(".json");
+    }
 
-            // Przetwórz zastąpienia
-            if (root.has("replacements")) {
-                modificationsInFile += processReplacements(root.getAsJsonArray("replacements"));
+    /**
+     * Ładuje pojedynczy plik konfiguracyjny
+     * @return reguły z pliku albo null, jeśli pliku nie dało się przeczytać (stare reguły zostają)
+     */
+    private static ConfigBatch loadConfigFile(Path configFile) {
+        ConfigBatch batch = new ConfigBatch(configFile);
+        try {
+            LOGGER.detail("Loading config: {}", configFile.getFileName());
+
+            // Walidacja pliku
+            if (!Files.exists(configFile)) {
+                LOGGER.error("Config file does not exist: {}", configFile);
+                return null;
             }
 
-            // Przetwórz mnożniki
-            if (root.has("multipliers")) {
-                modificationsInFile += processMultipliers(root.getAsJsonArray("multipliers"));
+            if (!Files.isReadable(configFile)) {
+                LOGGER.error("Config file is not readable: {}", configFile);
+                return null;
             }
 
-            // Przetwórz wyłączenia
-            if (root.has("disabled_tables")) {
-                modificationsInFile += processDisabledTables(root.getAsJsonArray("disabled_tables"));
+            // Strumieniowo: w pamięci jest tylko bieżący wpis, nie całe drzewo JSON pliku
+            int modificationsInFile = 0;
+            try (BufferedReader in = Files.newBufferedReader(configFile, StandardCharsets.UTF_8)) {
+                // Pusty plik albo same białe znaki - JsonReader zgłosiłby koniec pliku
+                if (!skipWhitespace(in)) {
+                    LOGGER.warn("Config file is empty: {}", configFile.getFileName());
+                    return batch;
+                }
+
+                JsonReader reader = new JsonReader(in);
+                reader.setLenient(true);
+                // Reguły każdej sekcji, dopisywane do batcha w SECTION_ORDER - kolejność kluczy w pliku nie ma znaczenia
+                List<List<LootModifierBuilder>> sections = new ArrayList<>(SECTION_ORDER.size());
+                for (int i = 0; i < SECTION_ORDER.size(); i++) {
+                    sections.add(new ArrayList<>());
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String section = reader.nextName();
+                    modificationsInFile += switch (section) {
+                        // Przetwórz modyfikacje
+                        case "modifications" -> streamSection(reader, section, withConditions(batch, entry -> processModification(batch, entry)));
+                        // Przetwórz usunięcia
+                        case "removals" -> streamSection(reader, section, withConditions(batch, entry -> processRemoval(batch, entry)));
+                        // Przetwórz zastąpienia
+                        case "replacements" -> streamSection(reader, section, withConditions(batch, entry -> processReplacement(batch, entry)));
+                        // Przetwórz losowania ważone
+                        case "weighted_choices" -> streamSection(reader, section, withConditions(batch, entry -> processWeightedChoice(batch, entry)));
+                        // Przetwórz mnożniki
+                        case "multipliers" -> streamSection(reader, section, withConditions(batch, entry -> processMultiplier(batch, entry)));
+                        // Przetwórz wyłączenia
+                        case "disabled_tables" -> streamSection(reader, section, entry -> processDisabledTable(batch, entry));
+                        // Przetwórz tabele dostarczane do ekwipunku
+                        case "deliver_to_inventory" -> streamSection(reader, section, entry -> processDeliveredTable(batch, entry));
+                        default -> {
+                            reader.skipValue();
+                            yield 0;
+                        }
+                    };
+                    // Sekcja zostawia swoje reguły w batch.builders - przenieś je do bufora sekcji
+                    if (!batch.builders.isEmpty()) {
+                        sections.get(SECTION_ORDER.indexOf(section)).addAll(batch.builders);
+                        batch.builders.clear();
+                    }
+                }
+                reader.endObject();
+                sections.forEach(batch.builders::addAll);
+            } catch (EOFException e) {
+                LOGGER.error("Unexpected end of file in {}", configFile.getFileName());
+                return null;
+            } catch (MalformedJsonException | JsonParseException | IllegalStateException e) {
+                LOGGER.error("Invalid JSON syntax in {}: {}", configFile.getFileName(), e.getMessage());
+                return null;
             }
 
             if (modificationsInFile > 0) {
-                LOGGER.success("Loaded {} modifications from {}", modificationsInFile, configFile.getFileName());
+                LOGGER.detail("Loaded {} modifications from {}", modificationsInFile, configFile.getFileName());
             } else {
                 LOGGER.warn("No modifications found in {}", configFile.getFileName());
             }
 
+            return batch;
+
         } catch (IOException e) {
             LOGGER.error("Failed to read config file: {}", configFile.getFileName(), e);
         } catch (Exception e) {
             LOGGER.error("Unexpected error loading config: {}", configFile.getFileName(), e);
         }
+        return null;
+    }
+
+    /**
+     * Przesuwa czytnik do pierwszego znaku, który nie jest białym znakiem
+     * @return false, jeśli do końca pliku są tylko białe znaki
+     */
+    private static boolean skipWhitespace(BufferedReader in) throws IOException {
+        while (true) {
+            in.mark(1);
+            int c = in.read();
+            if (c == -1) {
+                return false;
+            }
+            if (!Character.isWhitespace(c)) {
+                in.reset();
+                return true;
+            }
+        }
     }
 
     /**
-     * Przetwarza modyfikacje (dodawanie przedmiotów)
+     * Czyta tablicę sekcji wpis po wpisie - każdy wpis jest walidowany i zamieniany w regułę od razu
+     * @return liczba przyjętych wpisów
      */
-    private static int processModifications(JsonArray modifications) {
+    private static int streamSection(JsonReader reader, String section, Predicate<JsonElement> handler) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            LOGGER.warn("Section '{}' is not an array, skipping", section);
+            reader.skipValue();
+            return 0;
+        }
+
         int count = 0;
-        for (JsonElement element : modifications) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (handler.test(JsonParser.parseReader(reader))) {
+                count++;
+            }
+        }
+        reader.endArray();
+        return count;
+    }
+
+    /**
+     * Nakłada warunki z bloku "when" wpisu na reguły, które ten wpis utworzył
+     * Błędny blok odrzuca cały wpis - reguła bez warunków działałaby szerzej, niż zamierzono
+     */
+    private static Predicate<JsonElement> withConditions(ConfigBatch batch, Predicate<JsonElement> handler) {
+        return entry -> {
+            int first = batch.builders.size();
+            if (!handler.test(entry)) {
+                return false;
+            }
+            JsonElement when = entry.getAsJsonObject().get("when");
+            if (when == null) {
+                return true;
+            }
+            List<LootModifierBuilder> created = batch.builders.subList(first, batch.builders.size());
             try {
-                if (!element.isJsonObject()) {
-                    LOGGER.warn("Invalid modification entry (not an object), skipping");
-                    continue;
+                applyConditions(created, when);
+                return true;
+            } catch (RuntimeException e) {
+                LOGGER.warn("Invalid 'when' block ({}), skipping entry", e.getMessage());
+                created.clear();
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Blok "when": dimension, biome, tool, killer (ID albo tablica ID) i enchantment (ID → minimalny poziom)
+     */
+    private static void applyConditions(List<LootModifierBuilder> builders, JsonElement element) {
+        if (!element.isJsonObject()) {
+            throw new IllegalArgumentException("not an object");
+        }
+        JsonObject when = element.getAsJsonObject();
+        for (Map.Entry<String, JsonElement> condition : when.entrySet()) {
+            JsonElement value = condition.getValue();
+            switch (condition.getKey()) {
+                case "dimension" -> {
+                    ResourceLocation[] dimensions = readIds(value);
+                    builders.forEach(builder -> builder.inDimension(dimensions));
+                }
+                case "biome" -> {
+                    ResourceLocation[] biomes = readIds(value);
+                    builders.forEach(builder -> builder.inBiome(biomes));
+                }
+                case "tool" -> {
+                    List<Item> tools = new ArrayList<>();
+                    for (ResourceLocation id : readIds(value)) {
+                        Item item = BuiltInRegistries.ITEM.get(id);
+                        if (item == Items.AIR) {
+                            throw new IllegalArgumentException("unknown tool " + id);
+                        }
+                        tools.add(item);
+                    }
+                    Item[] allowed = tools.toArray(new Item[0]);
+                    builders.forEach(builder -> builder.withTool(allowed));
+                }
+                case "killer" -> {
+                    List<EntityType<?>> killers = new ArrayList<>();
+                    for (ResourceLocation id : readIds(value)) {
+                        killers.add(BuiltInRegistries.ENTITY_TYPE.getOptional(id)
+                                .orElseThrow(() -> new IllegalArgumentException("unknown entity type " + id)));
+                    }
+                    EntityType<?>[] allowed = killers.toArray(new EntityType<?>[0]);
+                    builders.forEach(builder -> builder.killedBy(allowed));
+                }
+                case "enchantment" -> {
+                    if (!value.isJsonObject()) {
+                        throw new IllegalArgumentException("'enchantment' must map enchantment IDs to minimum levels");
+                    }
+                    for (Map.Entry<String, JsonElement> enchantment : value.getAsJsonObject().entrySet()) {
+                        ResourceLocation id = ResourceLocation.parse(enchantment.getKey());
+                        int minLevel = enchantment.getValue().getAsInt();
+                        builders.forEach(builder -> builder.withEnchantment(id, minLevel));
+                    }
                 }
+                default -> throw new IllegalArgumentException("unknown condition '" + condition.getKey() + "'");
+            }
+        }
+    }
+
+    /**
+     * Pojedyncze ID albo tablica ID
+     */
+    private static ResourceLocation[] readIds(JsonElement value) {
+        if (value.isJsonArray()) {
+            JsonArray array = value.getAsJsonArray();
+            ResourceLocation[] ids = new ResourceLocation[array.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = ResourceLocation.parse(array.get(i).getAsString());
+            }
+            return ids;
+        }
+        return new ResourceLocation[]{ResourceLocation.parse(value.getAsString())};
+    }
 
-                JsonObject mod = element.getAsJsonObject();
+    /**
+     * Przetwarza jedną modyfikację (dodawanie przedmiotu)
+     * @return true, jeśli wpis został przyjęty
+     */
+    private static boolean processModification(ConfigBatch batch, JsonElement element) {
+        try {
+            if (!element.isJsonObject()) {
+                LOGGER.warn("Invalid modification entry (not an object), skipping");
+                return false;
+            }
 
-                // Walidacja wymaganych pól
-                if (!mod.has("table")) {
-                    LOGGER.warn("Modification missing 'table' field, skipping");
-                    continue;
+            JsonObject mod = element.getAsJsonObject();
+
+            // Walidacja wymaganych pól
+            if (!mod.has("table")) {
+                LOGGER.warn("Modification missing 'table' field, skipping");
+                return false;
+            }
+            if (!mod.has("item")) {
+                LOGGER.warn("Modification missing 'item' field, skipping");
+                return false;
+            }
+
+            String tableId = mod.get("table").getAsString();
+            String itemId = mod.get("item").getAsString();
+
+            // Walidacja ID
+            if (tableId == null || tableId.isEmpty()) {
+                LOGGER.warn("Invalid table ID (empty), skipping");
+                return false;
+            }
+            if (itemId == null || itemId.isEmpty()) {
+                LOGGER.warn("Invalid item ID (empty), skipping");
+                return false;
+            }
+
+            Item item = BuiltInRegistries.ITEM.get(ResourceLocation.parse(itemId));
+
+            if (item == Items.AIR) {
+                LOGGER.warn("Unknown item: {}", itemId);
+                return false;
+            }
+
+            // Sprawdź czy ma określoną ilość
+            if (mod.has("count")) {
+                JsonObject countObj = mod.getAsJsonObject("count");
+                int min = countObj.has("min") ? countObj.get("min").getAsInt() : 1;
+                int max = countObj.has("max") ? countObj.get("max").getAsInt() : 1;
+                float chance = mod.has("chance") ? mod.get("chance").getAsFloat() : 1.0f;
+
+                // Walidacja wartości
+                if (min <= 0 || max <= 0) {
+                    LOGGER.warn("Invalid count values (min: {}, max: {}), skipping", min, max);
+                    return false;
                 }
-                if (!mod.has("item")) {
-                    LOGGER.warn("Modification missing 'item' field, skipping");
-                    continue;
+                if (chance < 0.0f || chance > 1.0f) {
+                    LOGGER.warn("Invalid chance value: {} (must be 0.0-1.0), skipping", chance);
+                    return false;
                 }
 
-                String tableId = mod.get("table").getAsString();
-                String itemId = mod.get("item").getAsString();
-
-                // Walidacja ID
-                if (tableId == null || tableId.isEmpty()) {
-                    LOGGER.warn("Invalid table ID (empty), skipping");
-                    continue;
+                LootModifierBuilder builder = LootModifierBuilder.addItem(batch.nextId("add_item"))
+                        .forTable(tableId)
+                        .withItem(item)
+                        .withCount(min, max);
+                if (chance < 1.0f) {
+                    builder.withChance(chance);
                 }
-                if (itemId == null || itemId.isEmpty()) {
-                    LOGGER.warn("Invalid item ID (empty), skipping");
-                    continue;
+                batch.builders.add(builder);
+            } else {
+                int singleCount = mod.has("count_single") ? mod.get("count_single").getAsInt() : 1;
+                float chance = mod.has("chance") ? mod.get("chance").getAsFloat() : 1.0f;
+                if (singleCount <= 0) {
+                    LOGGER.warn("Invalid count value: {}, skipping", singleCount);
+                    return false;
+                }
+                if (chance < 0.0f || chance > 1.0f) {
+                    LOGGER.warn("Invalid chance value: {} (must be 0.0-1.0), skipping", chance);
+                    return false;
                 }
+                LootModifierBuilder builder = LootModifierBuilder.addItem(batch.nextId("add_item"))
+                        .forTable(tableId)
+                        .withItem(item)
+                        .withCount(singleCount);
+                if (chance < 1.0f) {
+                    builder.withChance(chance);
+                }
+                batch.builders.add(builder);
+            }
 
-                ResourceLocation table = ResourceLocation.parse(tableId);
-                Item item = BuiltInRegistries.ITEM.get(ResourceLocation.parse(itemId));
+            return true;
 
-                if (item == Items.AIR) {
-                    LOGGER.warn("Unknown item: {}", itemId);
-                    continue;
-                }
+        } catch (JsonSyntaxException e) {
+            LOGGER.error("JSON syntax error in modification: {}", e.getMessage());
+        } catch (Exception e) {
+            LOGGER.error("Failed to process modification: {}", e.getMessage());
+        }
+        return false;
+    }
 
-                // Sprawdź czy ma określoną ilość
-                if (mod.has("count")) {
-                    JsonObject countObj = mod.getAsJsonObject("count");
-                    int min = countObj.has("min") ? countObj.get("min").getAsInt() : 1;
-                    int max = countObj.has("max") ? countObj.get("max").getAsInt() : 1;
-                    float chance = mod.has("chance") ? mod.get("chance").getAsFloat() : 1.0f;
-
-                    // Walidacja wartości
-                    if (min <= 0 || max <= 0) {
-                        LOGGER.warn("Invalid count values (min: {}, max: {}), skipping", min, max);
-                        continue;
-                    }
-                    if (chance < 0.0f || chance > 1.0f) {
-                        LOGGER.warn("Invalid chance value: {} (must be 0.0-1.0), skipping", chance);
-                        continue;
-                    }
+    /**
+     * Przetwarza jedno usunięcie przedmiotu ("item") albo wielu przedmiotów naraz ("items")
+     * @return true, jeśli wpis został przyjęty
+     */
+    private static boolean processRemoval(ConfigBatch batch, JsonElement element) {
+        try {
+            if (!element.isJsonObject()) {
+                LOGGER.warn("Invalid removal entry (not an object), skipping");
+                return false;
+            }
 
-                    LootTableAPI.addItemToTable(table, item, min, max, chance);
-                } else {
-                    int singleCount = mod.has("count_single") ? mod.get("count_single").getAsInt() : 1;
-                    if (singleCount <= 0) {
-                        LOGGER.warn("Invalid count value: {}, skipping", singleCount);
-                        continue;
-                    }
-                    LootTableAPI.addItemToTable(table, item, singleCount);
-                }
+            JsonObject removal = element.getAsJsonObject();
 
-                count++;
-                loadedModifications++;
+            if (!removal.has("table") || (!removal.has("item") && !removal.has("items"))) {
+                LOGGER.warn("Removal missing required fields, skipping");
+                return false;
+            }
+
+            String tableId = removal.get("table").getAsString();
+            if (tableId == null || tableId.isEmpty()) {
+                LOGGER.warn("Invalid table ID (empty), skipping");
+                return false;
+            }
 
-            } catch (JsonSyntaxException e) {
-                LOGGER.error("JSON syntax error in modification: {}", e.getMessage());
-            } catch (Exception e) {
-                LOGGER.error("Failed to process modification: {}", e.getMessage());
+            if (removal.has("items")) {
+                return processRemovalSet(batch, tableId, removal.getAsJsonArray("items"));
             }
+
+            String itemId = removal.get("item").getAsString();
+            if (itemId == null || itemId.isEmpty()) {
+                LOGGER.warn("Invalid item ID (empty), skipping");
+                return false;
+            }
+
+            Item item = BuiltInRegistries.ITEM.get(ResourceLocation.parse(itemId));
+
+            if (item == Items.AIR) {
+                LOGGER.warn("Unknown item: {}", itemId);
+                return false;
+            }
+
+            batch.builders.add(LootModifierBuilder.removeItem(batch.nextId("remove_item"))
+                    .forTable(tableId)
+                    .withItem(item));
+            return true;
+
+        } catch (Exception e) {
+            LOGGER.error("Failed to process removal: {}", e.getMessage());
         }
-        return count;
+        return false;
     }
 
     /**
-     * Przetwarza usunięcia przedmiotów
+     * Usunięcie wielu przedmiotów jedną regułą remove_items - nieznane przedmioty są pomijane
      */
-    private static int processRemovals(JsonArray removals) {
-        int count = 0;
-        for (JsonElement element : removals) {
-            try {
-                if (!element.isJsonObject()) {
-                    LOGGER.warn("Invalid removal entry (not an object), skipping");
-                    continue;
-                }
+    private static boolean processRemovalSet(ConfigBatch batch, String tableId, JsonArray itemIds) {
+        List<Item> items = new ArrayList<>(itemIds.size());
+        for (JsonElement itemId : itemIds) {
+            Item item = BuiltInRegistries.ITEM.get(ResourceLocation.parse(itemId.getAsString()));
+            if (item == Items.AIR) {
+                LOGGER.warn("Unknown item: {}", itemId.getAsString());
+                continue;
+            }
+            items.add(item);
+        }
+        if (items.isEmpty()) {
+            LOGGER.warn("Removal for {} has no valid items, skipping", tableId);
+            return false;
+        }
+
+        batch.builders.add(LootModifierBuilder.removeItems(batch.nextId("remove_items"))
+                .forTable(tableId)
+                .withItems(items.toArray(new Item[0])));
+        return true;
+    }
 
-                JsonObject removal = element.getAsJsonObject();
+    /**
+     * Przetwarza jedno zastąpienie przedmiotu
+     * @return true, jeśli wpis został przyjęty
+     */
+    private static boolean processReplacement(ConfigBatch batch, JsonElement element) {
+        try {
+            if (!element.isJsonObject()) {
+                LOGGER.warn("Invalid replacement entry (not an object), skipping");
+                return false;
+            }
 
-                if (!removal.has("table") || !removal.has("item")) {
-                    LOGGER.warn("Removal missing required fields, skipping");
-                    continue;
-                }
+            JsonObject replacement = element.getAsJsonObject();
 
-                String tableId = removal.get("table").getAsString();
-                String itemId = removal.get("item").getAsString();
+            if (replacement.has("table") && replacement.has("items")) {
+                return processReplacementMap(batch, replacement);
+            }
 
-                if (tableId == null || tableId.isEmpty() || itemId == null || itemId.isEmpty()) {
-                    LOGGER.warn("Invalid table or item ID (empty), skipping");
-                    continue;
-                }
+            if (!replacement.has("table") || !replacement.has("old_item") || !replacement.has("new_item")) {
+                LOGGER.warn("Replacement missing required fields, skipping");
+                return false;
+            }
 
-                ResourceLocation table = ResourceLocation.parse(tableId);
-                Item item = BuiltInRegistries.ITEM.get(ResourceLocation.parse(itemId));
+            String tableId = replacement.get("table").getAsString();
+            String oldItemId = replacement.get("old_item").getAsString();
+            String newItemId = replacement.get("new_item").getAsString();
 
-                if (item == Items.AIR) {
-                    LOGGER.warn("Unknown item: {}", itemId);
-                    continue;
-                }
+            if (tableId == null || tableId.isEmpty() ||
+                oldItemId == null || oldItemId.isEmpty() ||
+                newItemId == null || newItemId.isEmpty()) {
+                LOGGER.warn("Invalid IDs in replacement (empty), skipping");
+                return false;
+            }
 
-                LootTableAPI.removeItemFromTable(table, item);
-                count++;
-                loadedModifications++;
+            Item oldItem = BuiltInRegistries.ITEM.get(ResourceLocation.parse(oldItemId));
+            Item newItem = BuiltInRegistries.ITEM.get(ResourceLocation.parse(newItemId));
 
-            } catch (Exception e) {
-                LOGGER.error("Failed to process removal: {}", e.getMessage());
+            if (oldItem == Items.AIR) {
+                LOGGER.warn("Unknown old item: {}", oldItemId);
+                return false;
             }
+            if (newItem == Items.AIR) {
+                LOGGER.warn("Unknown new item: {}", newItemId);
+                return false;
+            }
+
+            batch.builders.add(LootModifierBuilder.replaceItem(batch.nextId("replace_item"))
+                    .forTable(tableId)
+                    .withOldItem(oldItem)
+                    .withNewItem(newItem));
+            return true;
+
+        } catch (Exception e) {
+            LOGGER.error("Failed to process replacement: {}", e.getMessage());
         }
-        return count;
+        return false;
     }
 
     /**
-     * Przetwarza zastąpienia przedmiotów
+     * Zamiana wielu przedmiotów jedną regułą replace_items ("items": {"stary": "nowy", ...})
+     * Pary z nieznanymi przedmiotami są pomijane
      */
-    private static int processReplacements(JsonArray replacements) {
-        int count = 0;
-        for (JsonElement element : replacements) {
-            try {
-                if (!element.isJsonObject()) {
-                    LOGGER.warn("Invalid replacement entry (not an object), skipping");
-                    continue;
-                }
+    private static boolean processReplacementMap(ConfigBatch batch, JsonObject replacement) {
+        String tableId = replacement.get("table").getAsString();
+        if (tableId == null || tableId.isEmpty()) {
+            LOGGER.warn("Invalid table ID in replacement (empty), skipping");
+            return false;
+        }
 
-                JsonObject replacement = element.getAsJsonObject();
+        LootModifierBuilder builder = LootModifierBuilder.replaceItems(batch.nextId("replace_items")).forTable(tableId);
+        int pairs = 0;
+        for (Map.Entry<String, JsonElement> pair : replacement.getAsJsonObject("items").entrySet()) {
+            Item oldItem = BuiltInRegistries.ITEM.get(ResourceLocation.parse(pair.getKey()));
+            Item newItem = BuiltInRegistries.ITEM.get(ResourceLocation.parse(pair.getValue().getAsString()));
+            if (oldItem == Items.AIR || newItem == Items.AIR) {
+                LOGGER.warn("Unknown item in replacement {} -> {}, skipping pair", pair.getKey(), pair.getValue().getAsString());
+                continue;
+            }
+            builder.withReplacement(oldItem, newItem);
+            pairs++;
+        }
+        if (pairs == 0) {
+            LOGGER.warn("Replacement for {} has no valid pairs, skipping", tableId);
+            return false;
+        }
 
-                if (!replacement.has("table") || !replacement.has("old_item") || !replacement.has("new_item")) {
-                    LOGGER.warn("Replacement missing required fields, skipping");
-                    continue;
-                }
+        batch.builders.add(builder);
+        return true;
+    }
+
+    /**
+     * Przetwarza jeden mnożnik dropów
+     * @return true, jeśli wpis został przyjęty
+     */
+    private static boolean processMultiplier(ConfigBatch batch, JsonElement element) {
+        try {
+            if (!element.isJsonObject()) {
+                LOGGER.warn("Invalid multiplier entry (not an object), skipping");
+                return false;
+            }
 
-                String tableId = replacement.get("table").getAsString();
-                String oldItemId = replacement.get("old_item").getAsString();
-                String newItemId = replacement.get("new_item").getAsString();
+            JsonObject mult = element.getAsJsonObject();
 
-                if (tableId == null || tableId.isEmpty() ||
-                    oldItemId == null || oldItemId.isEmpty() ||
-                    newItemId == null || newItemId.isEmpty()) {
-                    LOGGER.warn("Invalid IDs in replacement (empty), skipping");
-                    continue;
-                }
+            if (!mult.has("table") || !mult.has("multiplier")) {
+                LOGGER.warn("Multiplier missing required fields, skipping");
+                return false;
+            }
 
-                ResourceLocation table = ResourceLocation.parse(tableId);
-                Item oldItem = BuiltInRegistries.ITEM.get(ResourceLocation.parse(oldItemId));
-                Item newItem = BuiltInRegistries.ITEM.get(ResourceLocation.parse(newItemId));
+            String tableId = mult.get("table").getAsString();
+            float multiplier = mult.get("multiplier").getAsFloat();
 
-                if (oldItem == Items.AIR) {
-                    LOGGER.warn("Unknown old item: {}", oldItemId);
-                    continue;
-                }
-                if (newItem == Items.AIR) {
-                    LOGGER.warn("Unknown new item: {}", newItemId);
-                    continue;
-                }
+            if (tableId == null || tableId.isEmpty()) {
+                LOGGER.warn("Invalid table ID (empty), skipping");
+                return false;
+            }
 
-                LootTableAPI.replaceItem(table, oldItem, newItem);
-                count++;
-                loadedModifications++;
+            if (multiplier <= 0.0f) {
+                LOGGER.warn("Invalid multiplier value: {} (must be positive), skipping", multiplier);
+                return false;
+            }
 
-            } catch (Exception e) {
-                LOGGER.error("Failed to process replacement: {}", e.getMessage());
+            if (multiplier > 100.0f) {
+                LOGGER.warn("Extremely high multiplier: {}x - are you sure?", multiplier);
             }
+
+            batch.builders.add(LootModifierBuilder.multiplyDrops(batch.nextId("multiply_drops"))
+                    .forTable(tableId)
+                    .withMultiplier(multiplier));
+            return true;
+
+        } catch (Exception e) {
+            LOGGER.error("Failed to process multiplier: {}", e.getMessage());
         }
-        return count;
+        return false;
     }
 
     /**
-     * Przetwarza mnożniki dropów
+     * Przetwarza jedno losowanie ważone ("entries": [{"item", "weight", "count"}, ...])
+     * Wpisy z nieznanymi przedmiotami albo niedodatnią wagą są pomijane
+     * @return true, jeśli wpis został przyjęty
      */
-    private static int processMultipliers(JsonArray multipliers) {
-        int count = 0;
-        for (JsonElement element : multipliers) {
-            try {
-                if (!element.isJsonObject()) {
-                    LOGGER.warn("Invalid multiplier entry (not an object), skipping");
-                    continue;
-                }
+    private static boolean processWeightedChoice(ConfigBatch batch, JsonElement element) {
+        try {
+            if (!element.isJsonObject()) {
+                LOGGER.warn("Invalid weighted choice entry (not an object), skipping");
+                return false;
+            }
 
-                JsonObject mult = element.getAsJsonObject();
+            JsonObject choice = element.getAsJsonObject();
 
-                if (!mult.has("table") || !mult.has("multiplier")) {
-                    LOGGER.warn("Multiplier missing required fields, skipping");
-                    continue;
-                }
+            if (!choice.has("table") || !choice.has("entries")) {
+                LOGGER.warn("Weighted choice missing required fields, skipping");
+                return false;
+            }
 
-                String tableId = mult.get("table").getAsString();
-                float multiplier = mult.get("multiplier").getAsFloat();
+            String tableId = choice.get("table").getAsString();
+            if (tableId == null || tableId.isEmpty()) {
+                LOGGER.warn("Invalid table ID (empty), skipping");
+                return false;
+            }
 
-                if (tableId == null || tableId.isEmpty()) {
-                    LOGGER.warn("Invalid table ID (empty), skipping");
+            float chance = choice.has("chance") ? choice.get("chance").getAsFloat() : 1.0f;
+            if (chance < 0.0f || chance > 1.0f) {
+                LOGGER.warn("Invalid chance value: {} (must be 0.0-1.0), skipping", chance);
+                return false;
+            }
+
+            LootModifierBuilder builder = LootModifierBuilder.weightedChoice(batch.nextId("weighted_choice")).forTable(tableId);
+            int entries = 0;
+            for (JsonElement entryElement : choice.getAsJsonArray("entries")) {
+                JsonObject entry = entryElement.getAsJsonObject();
+                String itemId = entry.has("item") ? entry.get("item").getAsString() : "";
+                Item item = itemId.isEmpty() ? Items.AIR : BuiltInRegistries.ITEM.get(ResourceLocation.parse(itemId));
+                float weight = entry.has("weight") ? entry.get("weight").getAsFloat() : 1.0f;
+                if (item == Items.AIR) {
+                    LOGGER.warn("Unknown item in weighted choice: {}, skipping entry", itemId);
                     continue;
                 }
-
-                if (multiplier <= 0.0f) {
-                    LOGGER.warn("Invalid multiplier value: {} (must be positive), skipping", multiplier);
+                if (weight <= 0.0f) {
+                    LOGGER.warn("Invalid weight {} for {} (must be positive), skipping entry", weight, itemId);
                     continue;
                 }
 
-                if (multiplier > 100.0f) {
-                    LOGGER.warn("Extremely high multiplier: {}x - are you sure?", multiplier);
+                int min = 1;
+                int max = 1;
+                if (entry.has("count")) {
+                    JsonObject countObj = entry.getAsJsonObject("count");
+                    min = countObj.has("min") ? countObj.get("min").getAsInt() : 1;
+                    max = countObj.has("max") ? countObj.get("max").getAsInt() : min;
+                }
+                if (min <= 0 || max < min) {
+                    LOGGER.warn("Invalid count values (min: {}, max: {}) for {}, skipping entry", min, max, itemId);
+                    continue;
                 }
 
-                ResourceLocation table = ResourceLocation.parse(tableId);
-                LootTableAPI.multiplyDrops(table, multiplier);
-                count++;
-                loadedModifications++;
+                builder.withWeightedItem(item, weight, min, max);
+                entries++;
+            }
+            if (entries == 0) {
+                LOGGER.warn("Weighted choice for {} has no valid entries, skipping", tableId);
+                return false;
+            }
 
-            } catch (Exception e) {
-                LOGGER.error("Failed to process multiplier: {}", e.getMessage());
+            if (chance < 1.0f) {
+                builder.withChance(chance);
             }
+            batch.builders.add(builder);
+            return true;
+
+        } catch (Exception e) {
+            LOGGER.error("Failed to process weighted choice: {}", e.getMessage());
         }
-        return count;
+        return false;
     }
 
     /**
-     * Przetwarza wyłączone tabele
+     * Przetwarza jedną wyłączoną tabelę
+     * @return true, jeśli wpis został przyjęty
      */
-    private static int processDisabledTables(JsonArray disabledTables) {
-        int count = 0;
-        for (JsonElement element : disabledTables) {
-            try {
-                if (!element.isJsonPrimitive()) {
-                    LOGGER.warn("Invalid disabled table entry (not a string), skipping");
-                    continue;
-                }
+    private static boolean processDisabledTable(ConfigBatch batch, JsonElement element) {
+        try {
+            if (!element.isJsonPrimitive()) {
+                LOGGER.warn("Invalid disabled table entry (not a string), skipping");
+                return false;
+            }
 
-                String tableId = element.getAsString();
+            String tableId = element.getAsString();
 
-                if (tableId == null || tableId.isEmpty()) {
-                    LOGGER.warn("Invalid table ID (empty), skipping");
-                    continue;
-                }
+            if (tableId == null || tableId.isEmpty()) {
+                LOGGER.warn("Invalid table ID (empty), skipping");
+                return false;
+            }
 
-                ResourceLocation table = ResourceLocation.parse(tableId);
-                LootTableAPI.disableLootTable(table);
-                count++;
-                loadedModifications++;
+            batch.builders.add(LootModifierBuilder.clearTable(batch.nextId("clear_table"))
+                    .forTable(tableId));
+            return true;
 
-            } catch (Exception e) {
-                LOGGER.error("Failed to process disabled table: {}", e.getMessage());
+        } catch (Exception e) {
+            LOGGER.error("Failed to process disabled table: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Przetwarza jedną tabelę, której loot trafia prosto do ekwipunku gracza
+     * @return true, jeśli wpis został przyjęty
+     */
+    private static boolean processDeliveredTable(ConfigBatch batch, JsonElement element) {
+        try {
+            if (!element.isJsonPrimitive()) {
+                LOGGER.warn("Invalid deliver_to_inventory entry (not a string), skipping");
+                return false;
             }
+
+            String tableId = element.getAsString();
+            if (tableId == null || tableId.isEmpty()) {
+                LOGGER.warn("Invalid table ID (empty), skipping");
+                return false;
+            }
+
+            batch.builders.add(LootModifierBuilder.deliverToInventory(batch.nextId("deliver_to_inventory"))
+                    .forTable(tableId));
+            return true;
+
+        } catch (Exception e) {
+            LOGGER.error("Failed to process deliver_to_inventory table: {}", e.getMessage());
         }
-        return count;
+        return false;
     }
 
     /**
@@ -408,7 +912,7 @@ public class LootConfigManager {
             JsonObject mod1 = new JsonObject();
             mod1.addProperty("table", "minecraft:blocks/diamond_ore");
             mod1.addProperty("item", "minecraft:emerald");
-            mod1.addProperty("weight", 10);
+            mod1.addProperty("chance", 0.1);
             mod1.addProperty("_comment", "10% szansa na emerald z diamond ore");
             modifications.add(mod1);
 
@@ -447,6 +951,21 @@ public class LootConfigManager {
 
             example.add("replacements", replacements);
 
+            // Przykładowe losowanie ważone
+            JsonArray weightedChoices = new JsonArray();
+
+            JsonObject choice1 = new JsonObject();
+            choice1.addProperty("table", "minecraft:chests/simple_dungeon");
+            JsonArray choiceEntries = new JsonArray();
+            choiceEntries.add(weightedEntry("minecraft:iron_ingot", 10, 1, 3));
+            choiceEntries.add(weightedEntry("minecraft:gold_ingot", 5, 1, 2));
+            choiceEntries.add(weightedEntry("minecraft:diamond", 1, 1, 1));
+            choice1.add("entries", choiceEntries);
+            choice1.addProperty("_comment", "Jeden z trzech przedmiotów w proporcjach 10:5:1");
+            weightedChoices.add(choice1);
+
+            example.add("weighted_choices", weightedChoices);
+
             // Przykładowe mnożniki
             JsonArray multipliers = new JsonArray();
 
@@ -456,6 +975,24 @@ public class LootConfigManager {
             mult1.addProperty("_comment", "Podwójne dropy z iron ore");
             multipliers.add(mult1);
 
+            JsonObject mult2 = new JsonObject();
+            mult2.addProperty("table", "minecraft:blocks/*_ore");
+            mult2.addProperty("multiplier", 1.5);
+            mult2.addProperty("_comment", "Wzorzec: wszystkie rudy (rozwijany przy starcie serwera)");
+            multipliers.add(mult2);
+
+            JsonObject mult3 = new JsonObject();
+            mult3.addProperty("table", "minecraft:entities/blaze");
+            mult3.addProperty("multiplier", 2.0);
+            JsonObject when = new JsonObject();
+            when.addProperty("killer", "minecraft:player");
+            JsonObject looting = new JsonObject();
+            looting.addProperty("minecraft:looting", 3);
+            when.add("enchantment", looting);
+            mult3.add("when", when);
+            mult3.addProperty("_comment", "Tylko gdy zabija gracz bronią z Looting III");
+            multipliers.add(mult3);
+
             example.add("multipliers", multipliers);
 
             // Przykładowe wyłączenia
@@ -464,6 +1001,12 @@ public class LootConfigManager {
             example.add("disabled_tables", disabled);
             example.addProperty("_disabled_comment", "Coal ore nic nie dropuje");
 
+            // Przykładowe dostarczanie do ekwipunku
+            JsonArray delivered = new JsonArray();
+            delivered.add("minecraft:blocks/*_ore");
+            example.add("deliver_to_inventory", delivered);
+            example.addProperty("_deliver_comment", "Dropy z rud trafiają prosto do ekwipunku gracza");
+
             // Zapisz przykład
             Path exampleFile = configDir.resolve("example.json.disabled");
             Files.writeString(exampleFile, GSON.toJson(example));
@@ -475,4 +1018,18 @@ public class LootConfigManager {
             LOGGER.error("Failed to create example config", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Wpis losowania ważonego do przykładowego configu
+     */
+    private static JsonObject weightedEntry(String item, int weight, int min, int max) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("item", item);
+        entry.addProperty("weight", weight);
+        JsonObject count = new JsonObject();
+        count.addProperty("min", min);
+        count.addProperty("max", max);
+        entry.add("count", count);
+        return entry;
+    }
+}
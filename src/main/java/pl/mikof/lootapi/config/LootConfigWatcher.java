@@ -0,0 +1,132 @@
+package pl.mikof.lootapi.config;
+
+import net.minecraft.server.MinecraftServer;
+import org.slf4j.LoggerFactory;
+import pl.mikof.lootapi.util.ColoredLogger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Obserwuje config/lootapi i przeładowuje tylko zmienione pliki
+ *
+ * Parsowanie odbywa się na wątku obserwatora, a podmiana reguł na wątku serwera -
+ * przebudowywane są wyłącznie tabele, których dotyczyły reguły zmienionego pliku.
+ */
+public class LootConfigWatcher {
+    private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("LootConfigWatcher"));
+    // Edytory zapisują plik w kilku krokach - zbieramy zdarzenia przez chwilę
+    private static final long DEBOUNCE_MS = 250;
+
+    private static WatchService watchService;
+    private static Thread thread;
+
+    /**
+     * Uruchamia obserwatora (wywoływane po starcie serwera)
+     */
+    public static synchronized void start(MinecraftServer server) {
+        if (thread != null) {
+            return;
+        }
+
+        Path configDir = LootConfigManager.getConfigDir();
+        if (!Files.isDirectory(configDir)) {
+            LOGGER.warn("Config directory {} does not exist, hot reload disabled", configDir);
+            return;
+        }
+
+        try {
+            watchService = configDir.getFileSystem().newWatchService();
+            configDir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            LOGGER.error("Failed to start config watcher", e);
+            return;
+        }
+
+        WatchService service = watchService;
+        thread = new Thread(() -> run(service, configDir, server), "LootAPI Config Watcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.init("Watching {} for changes", configDir);
+    }
+
+    /**
+     * Zatrzymuje obserwatora (wywoływane przy zatrzymaniu serwera)
+     */
+    public static synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close config watcher: {}", e.getMessage());
+        }
+        thread.interrupt();
+        thread = null;
+        watchService = null;
+    }
+
+    private static void run(WatchService service, Path configDir, MinecraftServer server) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = new LinkedHashSet<>();
+                if (!collect(service.take(), configDir, changed)) {
+                    LOGGER.warn("Config directory {} is no longer accessible, hot reload stopped", configDir);
+                    return;
+                }
+
+                WatchKey more;
+                while ((more = service.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(more, configDir, changed);
+                }
+
+                for (Path file : changed) {
+                    LootConfigManager.ConfigBatch batch = LootConfigManager.reloadConfigFile(file);
+                    if (batch != null) {
+                        // Podmiana indeksu na wątku serwera - między losowaniami
+                        server.execute(() -> LootConfigManager.apply(batch));
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Zatrzymane przez stop()
+        }
+    }
+
+    /**
+     * Zbiera zmienione pliki .json z klucza
+     * @return false, jeśli katalog przestał być obserwowany
+     */
+    private static boolean collect(WatchKey key, Path configDir, Set<Path> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Zgubione zdarzenia - przeładuj wszystkie pliki
+                try (Stream<Path> files = Files.list(configDir)) {
+                    files.filter(LootConfigManager::isConfigFile).forEach(changed::add);
+                } catch (IOException e) {
+                    LOGGER.error("Failed to list config directory after overflow", e);
+                }
+                continue;
+            }
+            Path file = configDir.resolve((Path) event.context());
+            if (LootConfigManager.isConfigFile(file)) {
+                changed.add(file);
+            }
+        }
+        return key.reset();
+    }
+}
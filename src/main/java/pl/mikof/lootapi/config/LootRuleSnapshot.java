@@ -0,0 +1,245 @@
+package pl.mikof.lootapi.config;
+
+import com.mojang.serialization.MapCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import net.neoforged.fml.ModList;
+import net.neoforged.fml.loading.FMLPaths;
+import net.neoforged.neoforgespi.language.IModInfo;
+import net.neoforged.neoforge.registries.NeoForgeRegistries;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.LoggerFactory;
+import pl.mikof.lootapi.LootAPI;
+import pl.mikof.lootapi.api.LootModifierRegistry;
+import pl.mikof.lootapi.api.LootModifierRegistry.CompiledRule;
+import pl.mikof.lootapi.api.TablePattern;
+import pl.mikof.lootapi.glm.FusibleModifier;
+import pl.mikof.lootapi.glm.LootModifiers;
+import pl.mikof.lootapi.glm.LootRuleCondition;
+import pl.mikof.lootapi.util.ColoredLogger;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Binarny snapshot reguł z plików konfiguracyjnych - szybszy start serwera
+ *
+ * Klucz snapshotu to SHA-256 z zawartości plików, listy modów (z wersjami) i rejestru przedmiotów.
+ * Gdy klucz się zgadza, reguły są czytane z bufora w pamięci prosto do gotowych modifierów -
+ * bez parsowania JSON, walidacji i dekodowania przez MapCodec. Inny klucz = przebudowa snapshotu.
+ */
+public class LootRuleSnapshot {
+    private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("LootRuleSnapshot"));
+
+    private static final int MAGIC = 0x4C415253;
+    // Zmiana formatu zapisu = podbicie wersji (stare snapshoty zostaną przebudowane)
+    private static final int FORMAT_VERSION = 3;
+
+    /**
+     * Reguły jednego źródła (pliku konfiguracyjnego) w kolejności rejestracji
+     */
+    record Source(String name, List<CompiledRule> rules) {
+    }
+
+    /**
+     * Zwraca ścieżkę snapshotu (.cache/lootapi/rules.bin w katalogu gry)
+     */
+    public static Path getSnapshotFile() {
+        return FMLPaths.GAMEDIR.get().resolve(".cache").resolve(LootAPI.MOD_ID).resolve("rules.bin");
+    }
+
+    /**
+     * Liczy klucz snapshotu dla podanych plików (w kolejności ładowania)
+     */
+    static byte[] computeKey(List<Path> files) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(LootAPI.VERSION);
+
+            // Pliki konfiguracyjne: nazwa + pełna zawartość
+            out.writeInt(files.size());
+            for (Path file : files) {
+                out.writeUTF(file.getFileName().toString());
+                out.writeLong(Files.size(file));
+                Files.copy(file, out);
+            }
+
+            // Mody z wersjami - inna wersja moda może zmienić typy i rejestry
+            List<IModInfo> mods = ModList.get().getMods().stream()
+                    .sorted(Comparator.comparing(IModInfo::getModId))
+                    .toList();
+            out.writeInt(mods.size());
+            for (IModInfo mod : mods) {
+                out.writeUTF(mod.getModId());
+                out.writeUTF(mod.getVersion().toString());
+            }
+
+            // Rejestr przedmiotów w kolejności ID - snapshot trzyma numeryczne ID przedmiotów
+            out.writeInt(BuiltInRegistries.ITEM.size());
+            for (Item item : BuiltInRegistries.ITEM) {
+                out.writeUTF(BuiltInRegistries.ITEM.getKey(item).toString());
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Wczytuje snapshot, jeśli pasuje do klucza
+     * @return reguły pogrupowane po źródłach albo null (brak snapshotu, inny klucz, uszkodzony plik)
+     */
+    @Nullable
+    static List<Source> read(byte[] key) {
+        Path file = getSnapshotFile();
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        FriendlyByteBuf buf = null;
+        try {
+            buf = new FriendlyByteBuf(Unpooled.wrappedBuffer(Files.readAllBytes(file)));
+            if (buf.readInt() != MAGIC || buf.readInt() != FORMAT_VERSION) {
+                LOGGER.info("Rule snapshot has an outdated format, rebuilding");
+                return null;
+            }
+            if (!Arrays.equals(buf.readByteArray(), key)) {
+                LOGGER.info("Config files, mods or registries changed, rebuilding rule snapshot");
+                return null;
+            }
+
+            int sourceCount = buf.readVarInt();
+            List<Source> sources = new ArrayList<>(sourceCount);
+            for (int i = 0; i < sourceCount; i++) {
+                String name = buf.readUtf();
+                int ruleCount = buf.readVarInt();
+                List<CompiledRule> rules = new ArrayList<>(ruleCount);
+                for (int j = 0; j < ruleCount; j++) {
+                    String id = buf.readUtf();
+                    List<ResourceLocation> tables = buf.readList(FriendlyByteBuf::readResourceLocation);
+                    List<TablePattern> patterns = buf.readList(b -> TablePattern.parse(b.readUtf()));
+                    LootRuleCondition condition = LootRuleCondition.read(buf);
+                    ResourceLocation type = buf.readResourceLocation();
+                    StreamCodec<ByteBuf, ? extends FusibleModifier> codec = streamCodec(type);
+                    if (codec == null) {
+                        LOGGER.warn("Unknown modifier type '{}' in rule snapshot, rebuilding", type);
+                        return null;
+                    }
+                    rules.add(new CompiledRule(id, tables, patterns, condition, codec.decode(buf)));
+                }
+                sources.add(new Source(name, rules));
+            }
+            return sources;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to read rule snapshot, rebuilding: {}", e.getMessage());
+            return null;
+        } finally {
+            if (buf != null) {
+                buf.release();
+            }
+        }
+    }
+
+    /**
+     * Zapisuje reguły podanych źródeł z rejestru do snapshotu
+     * Reguły, których nie da się zapisać binarnie (typy spoza LootAPI), wyłączają snapshot
+     */
+    static void write(byte[] key, List<String> sourceNames) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        try {
+            buf.writeInt(MAGIC);
+            buf.writeInt(FORMAT_VERSION);
+            buf.writeByteArray(key);
+
+            buf.writeVarInt(sourceNames.size());
+            for (String name : sourceNames) {
+                List<CompiledRule> rules = LootModifierRegistry.getCompiledRules(name);
+                if (rules == null) {
+                    LOGGER.warn("Rules from '{}' could not be decoded, rule snapshot not written", name);
+                    return;
+                }
+
+                buf.writeUtf(name);
+                buf.writeVarInt(rules.size());
+                for (CompiledRule rule : rules) {
+                    if (!writeRule(buf, rule)) {
+                        LOGGER.warn("Rule '{}' cannot be stored in a snapshot, rule snapshot not written", rule.id());
+                        return;
+                    }
+                }
+            }
+
+            Path file = getSnapshotFile();
+            Files.createDirectories(file.getParent());
+            // Zapis do pliku tymczasowego i podmiana - przerwany zapis nie zostawi połowy snapshotu
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                buf.readBytes(out, buf.readableBytes());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("Rule snapshot written to {}", file);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write rule snapshot: {}", e.getMessage());
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Usuwa snapshot (np. gdy któryś plik ma błędy - następny start musi je znowu zgłosić)
+     */
+    static void invalidate() {
+        try {
+            Files.deleteIfExists(getSnapshotFile());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete rule snapshot: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean writeRule(FriendlyByteBuf buf, CompiledRule rule) {
+        if (!(rule.modifier() instanceof FusibleModifier modifier) || !modifier.isUnconditional()) {
+            return false;
+        }
+        ResourceLocation type = NeoForgeRegistries.GLOBAL_LOOT_MODIFIER_SERIALIZERS.getKey(modifier.codec());
+        StreamCodec<ByteBuf, FusibleModifier> codec = (StreamCodec<ByteBuf, FusibleModifier>) LootModifiers.streamCodec(modifier.codec());
+        if (type == null || codec == null) {
+            return false;
+        }
+
+        buf.writeUtf(rule.id());
+        buf.writeCollection(rule.tables(), FriendlyByteBuf::writeResourceLocation);
+        buf.writeCollection(rule.patterns(), (b, pattern) -> b.writeUtf(pattern.pattern()));
+        rule.condition().write(buf);
+        buf.writeResourceLocation(type);
+        codec.encode(buf, modifier);
+        return true;
+    }
+
+    @Nullable
+    private static StreamCodec<ByteBuf, ? extends FusibleModifier> streamCodec(ResourceLocation type) {
+        MapCodec<?> codec = NeoForgeRegistries.GLOBAL_LOOT_MODIFIER_SERIALIZERS.get(type);
+        return codec == null ? null : LootModifiers.streamCodec(codec);
+    }
+}
@@ -121,7 +121,7 @@ public class ExampleMod {
 
             // ========== FINALIZACJA ==========
 
-            // To zapisze wszystkie modifikacje do plików JSON
+            // To skompiluje wszystkie modyfikacje do indeksu reguł
             // WAŻNE: Wywołaj to na końcu, po wszystkich modyfikacjach!
             LootTableAPI.finalizeModifiers();
 
@@ -3,8 +3,11 @@ package pl.mikof.lootapi.glm;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.MapCodec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.storage.loot.LootContext;
@@ -12,10 +15,12 @@ import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
 import net.neoforged.neoforge.common.loot.LootModifier;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
  * Global Loot Modifier - dodaje przedmiot do dropu
  */
-public class AddItemModifier extends LootModifier {
+public class AddItemModifier extends FusibleModifier {
     public static final MapCodec<AddItemModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
             LootModifier.codecStart(inst).and(inst.group(
                     BuiltInRegistries.ITEM.byNameCodec().fieldOf("item").forGetter(m -> m.item),
@@ -24,6 +29,13 @@ public class AddItemModifier extends LootModifier {
                     Codec.FLOAT.optionalFieldOf("chance", 1.0f).forGetter(m -> m.chance)
             )).apply(inst, AddItemModifier::new)
     );
+    public static final StreamCodec<ByteBuf, AddItemModifier> STREAM_CODEC = StreamCodec.composite(
+            ITEM_STREAM_CODEC, m -> m.item,
+            ByteBufCodecs.VAR_INT, m -> m.minCount,
+            ByteBufCodecs.VAR_INT, m -> m.maxCount,
+            ByteBufCodecs.FLOAT, m -> m.chance,
+            (item, min, max, chance) -> new AddItemModifier(NO_CONDITIONS, item, min, max, chance)
+    );
 
     private final Item item;
     private final int minCount;
@@ -40,9 +52,39 @@ public class AddItemModifier extends LootModifier {
 
     @Override
     protected @NotNull ObjectArrayList<ItemStack> doApply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
+        ItemStack stack = roll(context);
+        if (stack != null) {
+            generatedLoot.add(stack);
+        }
+        return generatedLoot;
+    }
+
+    @Override
+    protected LootPipeline.Stage toStage(LootMetrics.Counters metrics) {
+        return (LootPipeline.SourceStage) context -> {
+            metrics.invocations.increment();
+            ItemStack stack = roll(context);
+            if (stack != null) {
+                metrics.hits.increment();
+                metrics.stacksAdded.increment();
+            }
+            return stack;
+        };
+    }
+
+    @Override
+    protected LootCalculator.Stage toAnalyticStage() {
+        return new LootCalculator.Source(false, Math.clamp(chance, 0.0f, 1.0f),
+                List.of(new LootCalculator.Outcome(item, 1.0, minCount, Math.max(minCount, maxCount))));
+    }
+
+    /**
+     * Losuje stack do dodania (null = szansa nie wypadła)
+     */
+    private ItemStack roll(LootContext context) {
         // Sprawdź szansę
         if (context.getRandom().nextFloat() > chance) {
-            return generatedLoot;
+            return null;
         }
 
         // Oblicz ilość (losowa między min a max)
@@ -51,11 +93,7 @@ public class AddItemModifier extends LootModifier {
             count = minCount + context.getRandom().nextInt(maxCount - minCount + 1);
         }
 
-        // Dodaj przedmiot
-        ItemStack stack = new ItemStack(item, count);
-        generatedLoot.add(stack);
-
-        return generatedLoot;
+        return new ItemStack(item, count);
     }
 
     @Override
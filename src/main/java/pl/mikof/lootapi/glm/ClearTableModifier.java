@@ -2,20 +2,26 @@ package pl.mikof.lootapi.glm;
 
 import com.mojang.serialization.MapCodec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.storage.loot.LootContext;
 import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
 import net.neoforged.neoforge.common.loot.LootModifier;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
  * Global Loot Modifier - czyści całą tabelę loot (usuwa wszystkie dropy)
  */
-public class ClearTableModifier extends LootModifier {
+public class ClearTableModifier extends FusibleModifier {
     public static final MapCodec<ClearTableModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
             LootModifier.codecStart(inst).apply(inst, ClearTableModifier::new)
     );
+    public static final StreamCodec<ByteBuf, ClearTableModifier> STREAM_CODEC =
+            StreamCodec.of((buf, modifier) -> {}, buf -> new ClearTableModifier(NO_CONDITIONS));
 
     public ClearTableModifier(LootItemCondition[] conditions) {
         super(conditions);
@@ -23,8 +29,24 @@ public class ClearTableModifier extends LootModifier {
 
     @Override
     protected @NotNull ObjectArrayList<ItemStack> doApply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
-        // Zwróć pustą listę
-        return new ObjectArrayList<>();
+        // Wyczyść listę w miejscu
+        generatedLoot.clear();
+        return generatedLoot;
+    }
+
+    @Override
+    protected LootPipeline.Stage toStage(LootMetrics.Counters metrics) {
+        // Odrzucone stacki liczy potok (etap nie widzi wygenerowanego lootu)
+        return (LootPipeline.ResetStage) context -> {
+            metrics.invocations.increment();
+            metrics.hits.increment();
+            return null;
+        };
+    }
+
+    @Override
+    protected LootCalculator.Stage toAnalyticStage() {
+        return new LootCalculator.Source(true, 0.0f, List.of());
     }
 
     @Override
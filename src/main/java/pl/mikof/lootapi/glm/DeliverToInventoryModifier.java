@@ -0,0 +1,106 @@
+package pl.mikof.lootapi.glm;
+
+import com.mojang.serialization.MapCodec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParams;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+import net.neoforged.neoforge.common.loot.LootModifier;
+import net.neoforged.neoforge.common.util.FakePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * Global Loot Modifier - wkłada loot prosto do ekwipunku gracza, na ziemię spada tylko nadmiar
+ *
+ * W indeksie reguł to ustawienie tabeli, nie etap: potok dostarcza końcowe stacki (po wszystkich regułach
+ * i scaleniu), niezależnie od pozycji tej reguły. Dotyczy tylko dropów z bloku zniszczonego przez gracza
+ * i z moba zabitego przez gracza - skrzynie, łowienie i fałszywi gracze (maszyny) działają jak zwykle.
+ */
+public class DeliverToInventoryModifier extends FusibleModifier {
+    public static final MapCodec<DeliverToInventoryModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
+            LootModifier.codecStart(inst).apply(inst, DeliverToInventoryModifier::new)
+    );
+    public static final StreamCodec<ByteBuf, DeliverToInventoryModifier> STREAM_CODEC =
+            StreamCodec.of((buf, modifier) -> {}, buf -> new DeliverToInventoryModifier(NO_CONDITIONS));
+
+    public DeliverToInventoryModifier(LootItemCondition[] conditions) {
+        super(conditions);
+    }
+
+    @Override
+    protected @NotNull ObjectArrayList<ItemStack> doApply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
+        // Jako samodzielny GLM (poza indeksem) - dostarcza loot w miejscu reguły
+        deliver(generatedLoot, context, metrics());
+        return generatedLoot;
+    }
+
+    /**
+     * Wkłada stacki do ekwipunku gracza; w liście zostaje tylko to, co się nie zmieściło
+     */
+    static void deliver(ObjectArrayList<ItemStack> loot, LootContext context, LootMetrics.Counters metrics) {
+        metrics.invocations.increment();
+        ServerPlayer player = recipient(context);
+        if (player == null || loot.isEmpty()) {
+            return;
+        }
+        metrics.hits.increment();
+
+        int kept = 0;
+        for (int i = 0; i < loot.size(); i++) {
+            ItemStack stack = loot.get(i);
+            // add() zmniejsza stack o włożoną ilość
+            player.getInventory().add(stack);
+            if (!stack.isEmpty()) {
+                loot.set(kept++, stack);
+            }
+        }
+        metrics.stacksRemoved.add(loot.size() - kept);
+        loot.size(kept);
+    }
+
+    /**
+     * Gracz, który zniszczył blok albo zabił moba (null = loot idzie do świata jak zwykle)
+     */
+    @Nullable
+    private static ServerPlayer recipient(LootContext context) {
+        Entity entity;
+        if (context.hasParam(LootContextParams.DAMAGE_SOURCE)) {
+            entity = context.getParamOrNull(LootContextParams.LAST_DAMAGE_PLAYER);
+        } else if (context.hasParam(LootContextParams.BLOCK_STATE)) {
+            entity = context.getParamOrNull(LootContextParams.THIS_ENTITY);
+        } else {
+            return null;
+        }
+        if (entity instanceof ServerPlayer player && !(player instanceof FakePlayer) && player.isAlive()
+                && player.getServer() != null && player.getServer().isSameThread()) {
+            return player;
+        }
+        return null;
+    }
+
+    @Override
+    protected LootPipeline.Stage toStage(LootMetrics.Counters metrics) {
+        // Potok dostarcza loot na końcu (LootPipeline) - sam etap niczego nie zmienia
+        return (LootPipeline.StackStage) (stack, context, pipeline, next, out) -> pipeline.push(stack, next, context, out);
+    }
+
+    @Override
+    protected LootCalculator.Stage toAnalyticStage() {
+        // Rozkład dropów się nie zmienia, zmienia się tylko miejsce, w które trafiają
+        return new LootCalculator.Remove(Set.of());
+    }
+
+    @Override
+    public MapCodec<? extends DeliverToInventoryModifier> codec() {
+        return CODEC;
+    }
+}
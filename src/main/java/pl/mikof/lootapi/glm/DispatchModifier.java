@@ -0,0 +1,64 @@
+package pl.mikof.lootapi.glm;
+
+import com.mojang.serialization.MapCodec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+import net.neoforged.neoforge.common.loot.LootModifier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Global Loot Modifier - jeden wpis dla wszystkich reguł LootAPI
+ * Zamiast sprawdzać warunek każdej reguły, wyszukuje reguły tabeli w {@link LootRuleIndex}
+ */
+public class DispatchModifier extends LootModifier {
+    public static final MapCodec<DispatchModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
+            LootModifier.codecStart(inst).apply(inst, DispatchModifier::new)
+    );
+
+    public DispatchModifier(LootItemCondition[] conditions) {
+        super(conditions);
+    }
+
+    @Override
+    protected @NotNull ObjectArrayList<ItemStack> doApply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
+        LootRuleIndex index = LootRuleIndex.get();
+        if (index.isEmpty()) {
+            return generatedLoot;
+        }
+
+        // Jedno wyszukanie w indeksie, potem jeden przebieg skompilowanego potoku tabeli
+        ResourceLocation tableId = context.getQueriedLootTableId();
+        LootPipeline pipeline = index.pipelineFor(tableId);
+        if (tableId == null) {
+            return pipeline.apply(generatedLoot, context);
+        }
+
+        // Tabela bez reguł - bez liczników i bez wpisu w statystykach
+        if (pipeline == LootPipeline.EMPTY) {
+            return generatedLoot;
+        }
+
+        LootMetrics.Counters metrics = index.metricsFor(tableId);
+        metrics.invocations.increment();
+        metrics.hits.increment();
+        int stacksBefore = generatedLoot.size();
+        long startBytes = LootMetrics.allocatedBytes();
+        long start = System.nanoTime();
+        ObjectArrayList<ItemStack> result = pipeline.apply(generatedLoot, context);
+        metrics.record(start, startBytes, stacksBefore, result.size());
+        // Opcjonalnie: budżet dropów regionu, potem bufor chunka spawnowany zbiorczo na końcu ticku
+        if (DropBudget.admit(result, context)) {
+            DropAggregator.offer(result, context);
+        }
+        return result;
+    }
+
+    @Override
+    public MapCodec<? extends DispatchModifier> codec() {
+        return CODEC;
+    }
+}
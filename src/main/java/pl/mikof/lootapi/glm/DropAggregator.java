@@ -0,0 +1,181 @@
+package pl.mikof.lootapi.glm;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParams;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+import org.slf4j.LoggerFactory;
+import pl.mikof.lootapi.util.ColoredLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opcjonalne zbieranie dropów z wielu losowań w jednym ticku (farmy mobów, kopanie wybuchami)
+ *
+ * Zmodyfikowany loot nie jest zwracany do gry, tylko trafia do bufora chunka. Na końcu ticku serwera
+ * stacki każdego chunka są scalane ({@link StackCompactor}) i spawnowane raz, w miejscu pierwszego dropu.
+ * Buforowane są tylko losowania, których loot gra i tak wyrzuca do świata: śmierć moba
+ * (DAMAGE_SOURCE + THIS_ENTITY) i bloki zniszczone wybuchem (EXPLOSION_RADIUS). Takie dropy omijają
+ * LivingDropsEvent / BlockDropsEvent, więc usługa jest domyślnie wyłączona.
+ *
+ * Właściwości systemowe:
+ * -Dlootapi.aggregateDrops=true - włącza usługę
+ * -Dlootapi.aggregateDrops.chunkStacks=N - chunk z N stackami (po scaleniu) jest spawnowany od razu (domyślnie 64)
+ * -Dlootapi.aggregateDrops.maxStacks=N - limit stacków we wszystkich buforach, po przekroczeniu flush wszystkiego (domyślnie 4096)
+ */
+public final class DropAggregator {
+    private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("DropAggregator"));
+
+    private static final boolean ENABLED = Boolean.getBoolean("lootapi.aggregateDrops");
+    private static final int CHUNK_STACKS = Math.max(1, Integer.getInteger("lootapi.aggregateDrops.chunkStacks", 64));
+    private static final int MAX_STACKS = Math.max(CHUNK_STACKS, Integer.getInteger("lootapi.aggregateDrops.maxStacks", 4096));
+
+    // Świat → chunk → bufor; używane tylko z wątku serwera
+    private static final Reference2ObjectLinkedOpenHashMap<ServerLevel, Long2ObjectLinkedOpenHashMap<ChunkBuffer>> BUFFERS =
+            new Reference2ObjectLinkedOpenHashMap<>();
+    private static int bufferedStacks;
+
+    /**
+     * Dropy jednego chunka - spawnowane w miejscu pierwszego zbuforowanego dropu
+     */
+    private static final class ChunkBuffer {
+        private final Vec3 origin;
+        private final ObjectArrayList<ItemStack> stacks = new ObjectArrayList<>();
+
+        private ChunkBuffer(Vec3 origin) {
+            this.origin = origin;
+        }
+    }
+
+    private DropAggregator() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Przejmuje loot do bufora chunka, jeśli losowanie się kwalifikuje
+     * @return true, jeśli loot został zbuforowany (lista jest wtedy pusta)
+     */
+    static boolean offer(ObjectArrayList<ItemStack> loot, LootContext context) {
+        if (!ENABLED || loot.isEmpty() || !isWorldDrop(context)) {
+            return false;
+        }
+        ServerLevel level = context.getLevel();
+        // Symulacje i inne wątki dostają loot od razu
+        if (!level.getServer().isSameThread()) {
+            return false;
+        }
+        Vec3 origin = context.getParamOrNull(LootContextParams.ORIGIN);
+        if (origin == null) {
+            return false;
+        }
+
+        long chunk = ChunkPos.asLong((int) Math.floor(origin.x) >> 4, (int) Math.floor(origin.z) >> 4);
+        Long2ObjectLinkedOpenHashMap<ChunkBuffer> chunks = BUFFERS.computeIfAbsent(level, l -> new Long2ObjectLinkedOpenHashMap<>());
+        ChunkBuffer buffer = chunks.get(chunk);
+        if (buffer == null) {
+            buffer = new ChunkBuffer(origin);
+            chunks.put(chunk, buffer);
+        }
+
+        bufferedStacks -= buffer.stacks.size();
+        buffer.stacks.addAll(loot);
+        loot.clear();
+        if (buffer.stacks.size() >= CHUNK_STACKS) {
+            StackCompactor.compact(buffer.stacks);
+        }
+        if (buffer.stacks.size() >= CHUNK_STACKS) {
+            // Za dużo różnych przedmiotów - chunk idzie do świata od razu
+            chunks.remove(chunk);
+            spawn(level, buffer);
+        } else {
+            bufferedStacks += buffer.stacks.size();
+            if (bufferedStacks >= MAX_STACKS) {
+                flush();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Czy gra wyrzuci loot tego losowania do świata (a nie np. do skrzyni albo ekwipunku)
+     */
+    static boolean isWorldDrop(LootContext context) {
+        if (context.hasParam(LootContextParams.EXPLOSION_RADIUS) && context.hasParam(LootContextParams.BLOCK_STATE)) {
+            return true;
+        }
+        return context.hasParam(LootContextParams.DAMAGE_SOURCE) && context.hasParam(LootContextParams.THIS_ENTITY);
+    }
+
+    /**
+     * Spawnuje wszystkie bufory (koniec ticku, zatrzymanie serwera)
+     */
+    public static void flush() {
+        if (BUFFERS.isEmpty()) {
+            return;
+        }
+        // Bufory są odpinane przed spawnem - losowania wywołane w trakcie trafią już do nowych
+        List<Map.Entry<ServerLevel, Long2ObjectLinkedOpenHashMap<ChunkBuffer>>> levels = new ArrayList<>(BUFFERS.entrySet());
+        BUFFERS.clear();
+        bufferedStacks = 0;
+        for (Map.Entry<ServerLevel, Long2ObjectLinkedOpenHashMap<ChunkBuffer>> entry : levels) {
+            for (ChunkBuffer buffer : entry.getValue().values()) {
+                StackCompactor.compact(buffer.stacks);
+                spawn(entry.getKey(), buffer);
+            }
+        }
+    }
+
+    private static void spawn(ServerLevel level, ChunkBuffer buffer) {
+        for (ItemStack stack : buffer.stacks) {
+            spawn(level, buffer.origin, stack);
+        }
+        LOGGER.debug("Spawned {} aggregated stacks at {}", buffer.stacks.size(), buffer.origin);
+    }
+
+    /**
+     * Spawnuje stack tak jak zwykły drop (losowy rozrzut, domyślne opóźnienie podniesienia)
+     */
+    static void spawn(ServerLevel level, Vec3 origin, ItemStack stack) {
+        ItemEntity entity = new ItemEntity(level, origin.x, origin.y, origin.z, stack);
+        entity.setDefaultPickUpDelay();
+        level.addFreshEntity(entity);
+    }
+
+    public static void onServerTick(ServerTickEvent.Post event) {
+        flush();
+    }
+
+    /**
+     * Świat jest zapisywany przy wyładowaniu - dropy muszą trafić do niego wcześniej
+     */
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            Long2ObjectLinkedOpenHashMap<ChunkBuffer> chunks = BUFFERS.remove(level);
+            if (chunks != null) {
+                for (ChunkBuffer buffer : chunks.values()) {
+                    bufferedStacks -= buffer.stacks.size();
+                    StackCompactor.compact(buffer.stacks);
+                    spawn(level, buffer);
+                }
+            }
+        }
+    }
+
+    public static void onServerStopping(ServerStoppingEvent event) {
+        flush();
+    }
+}
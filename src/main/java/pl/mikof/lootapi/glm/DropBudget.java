@@ -0,0 +1,257 @@
+package pl.mikof.lootapi.glm;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParams;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+import org.slf4j.LoggerFactory;
+import pl.mikof.lootapi.util.ColoredLogger;
+
+import java.util.Map;
+
+/**
+ * Opcjonalny budżet dropów: kubełek żetonów (token bucket) na chunk albo region chunków
+ *
+ * Jeden żeton = jeden stack = jeden ItemEntity. Losowanie, które nie mieści się w budżecie,
+ * jest najpierw scalane ({@link StackCompactor}); jeśli nadal się nie mieści, loot czeka w kolejce
+ * regionu i jest spawnowany w kolejnych tickach, w miarę jak kubełek się napełnia. Przedmioty nigdy nie przepadają.
+ * Stan kubełka (żetony w tysięcznych + tick ostatniego uzupełnienia) to jeden long w prymitywnej mapie -
+ * sprawdzenie w zwykłym przypadku niczego nie alokuje.
+ *
+ * Właściwości systemowe:
+ * -Dlootapi.dropBudget=true - włącza budżet
+ * -Dlootapi.dropBudget.perSecond=N - stacki na sekundę na region (domyślnie 200)
+ * -Dlootapi.dropBudget.burst=N - pojemność kubełka (domyślnie = perSecond)
+ * -Dlootapi.dropBudget.regionShift=N - region = 2^N × 2^N chunków (domyślnie 0 = chunk)
+ * -Dlootapi.dropBudget.maxDeferred=N - limit stacków w kolejce regionu, nadmiar idzie do świata (domyślnie 256)
+ */
+public final class DropBudget {
+    private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("DropBudget"));
+
+    private static final boolean ENABLED = Boolean.getBoolean("lootapi.dropBudget");
+    private static final int PER_SECOND = Math.clamp(Integer.getInteger("lootapi.dropBudget.perSecond", 200), 1, 1_000_000);
+    private static final int BURST = Math.clamp(Integer.getInteger("lootapi.dropBudget.burst", PER_SECOND), 1, 1_000_000);
+    private static final int REGION_SHIFT = Math.clamp(Integer.getInteger("lootapi.dropBudget.regionShift", 0), 0, 8);
+    private static final int MAX_DEFERRED = Math.max(1, Integer.getInteger("lootapi.dropBudget.maxDeferred", 256));
+
+    // Żetony liczone w tysięcznych, żeby uzupełnienie na tick nie gubiło ułamków
+    private static final long MILLI = 1000;
+    private static final long CAPACITY = BURST * MILLI;
+    private static final long REFILL_PER_TICK = PER_SECOND * MILLI / 20;
+    // Brak wpisu w mapie = pełny kubełek
+    private static final long MISSING = Long.MIN_VALUE;
+    // Co ile ticków usuwać pełne kubełki nieaktywnych regionów
+    private static final int SWEEP_INTERVAL = 1200;
+
+    // Świat → region → stan kubełka (żetony << 32 | tick); używane tylko z wątku serwera
+    private static final Reference2ObjectOpenHashMap<ServerLevel, Long2LongOpenHashMap> BUCKETS = new Reference2ObjectOpenHashMap<>();
+    private static final Reference2ObjectOpenHashMap<ServerLevel, Long2ObjectLinkedOpenHashMap<Deferred>> DEFERRED =
+            new Reference2ObjectOpenHashMap<>();
+
+    private static long compacted;
+    private static long deferred;
+
+    /**
+     * Loot regionu czekający na żetony - spawnowany w miejscu pierwszego odłożonego dropu
+     */
+    private static final class Deferred {
+        private final Vec3 origin;
+        private final ObjectArrayList<ItemStack> stacks = new ObjectArrayList<>();
+
+        private Deferred(Vec3 origin) {
+            this.origin = origin;
+        }
+    }
+
+    private DropBudget() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Sprawdza budżet regionu dla lootu losowania
+     * @return true, jeśli loot idzie do świata teraz (może zostać scalony); false = odłożony, lista jest pusta
+     */
+    static boolean admit(ObjectArrayList<ItemStack> loot, LootContext context) {
+        if (!ENABLED || loot.isEmpty() || !DropAggregator.isWorldDrop(context)) {
+            return true;
+        }
+        ServerLevel level = context.getLevel();
+        if (!level.getServer().isSameThread()) {
+            return true;
+        }
+        Vec3 origin = context.getParamOrNull(LootContextParams.ORIGIN);
+        if (origin == null) {
+            return true;
+        }
+
+        long region = regionKey(origin);
+        int tick = level.getServer().getTickCount();
+        Long2LongOpenHashMap buckets = BUCKETS.computeIfAbsent(level, l -> newBuckets());
+        long state = refill(buckets.get(region), tick);
+
+        // Region z kolejką - nowe dropy ustawiają się za odłożonymi
+        Long2ObjectLinkedOpenHashMap<Deferred> queued = DEFERRED.get(level);
+        if (queued == null || !queued.containsKey(region)) {
+            long cost = loot.size() * MILLI;
+            if (cost > tokens(state)) {
+                StackCompactor.compact(loot);
+                compacted++;
+                cost = loot.size() * MILLI;
+            }
+            if (cost <= tokens(state)) {
+                buckets.put(region, state - (cost << 32));
+                return true;
+            }
+        }
+
+        buckets.put(region, state);
+        defer(level, region, origin, loot);
+        loot.clear();
+        return false;
+    }
+
+    private static void defer(ServerLevel level, long region, Vec3 origin, ObjectArrayList<ItemStack> loot) {
+        Deferred queue = DEFERRED.computeIfAbsent(level, l -> new Long2ObjectLinkedOpenHashMap<>())
+                .computeIfAbsent(region, r -> new Deferred(origin));
+        queue.stacks.addAll(loot);
+        deferred += loot.size();
+        if (queue.stacks.size() > MAX_DEFERRED) {
+            StackCompactor.compact(queue.stacks);
+        }
+        if (queue.stacks.size() > MAX_DEFERRED) {
+            // Kolejka ma granicę - nadmiar idzie do świata ponad budżet zamiast rosnąć bez końca
+            int overflow = queue.stacks.size() - MAX_DEFERRED;
+            for (int i = 0; i < overflow; i++) {
+                DropAggregator.spawn(level, queue.origin, queue.stacks.get(i));
+            }
+            queue.stacks.removeElements(0, overflow);
+            LOGGER.debug("Drop queue of region {} is full, spawned {} stacks over budget", region, overflow);
+        }
+    }
+
+    /**
+     * Koniec ticku: spawnuje odłożony loot na ile pozwalają żetony, co jakiś czas usuwa pełne kubełki
+     */
+    public static void onServerTick(ServerTickEvent.Post event) {
+        int tick = event.getServer().getTickCount();
+        for (Map.Entry<ServerLevel, Long2ObjectLinkedOpenHashMap<Deferred>> entry : DEFERRED.entrySet()) {
+            ServerLevel level = entry.getKey();
+            Long2LongOpenHashMap buckets = BUCKETS.computeIfAbsent(level, l -> newBuckets());
+            ObjectIterator<Long2ObjectMap.Entry<Deferred>> queues = entry.getValue().long2ObjectEntrySet().fastIterator();
+            while (queues.hasNext()) {
+                Long2ObjectMap.Entry<Deferred> queue = queues.next();
+                long region = queue.getLongKey();
+                ObjectArrayList<ItemStack> stacks = queue.getValue().stacks;
+                long state = refill(buckets.get(region), tick);
+                int released = (int) Math.min(stacks.size(), tokens(state) / MILLI);
+                for (int i = 0; i < released; i++) {
+                    DropAggregator.spawn(level, queue.getValue().origin, stacks.get(i));
+                }
+                stacks.removeElements(0, released);
+                buckets.put(region, state - ((released * MILLI) << 32));
+                if (stacks.isEmpty()) {
+                    queues.remove();
+                }
+            }
+        }
+        DEFERRED.values().removeIf(Long2ObjectLinkedOpenHashMap::isEmpty);
+
+        if (tick % SWEEP_INTERVAL == 0) {
+            sweep(tick);
+        }
+    }
+
+    /**
+     * Usuwa kubełki, które zdążyły się napełnić - brak wpisu znaczy to samo
+     */
+    private static void sweep(int tick) {
+        for (Long2LongOpenHashMap buckets : BUCKETS.values()) {
+            ObjectIterator<Long2LongMap.Entry> iterator = buckets.long2LongEntrySet().fastIterator();
+            while (iterator.hasNext()) {
+                if (tokens(refill(iterator.next().getLongValue(), tick)) >= CAPACITY) {
+                    iterator.remove();
+                }
+            }
+        }
+        if (compacted > 0 || deferred > 0) {
+            LOGGER.debug("Drop budget: {} rolls compacted, {} stacks deferred since last sweep", compacted, deferred);
+            compacted = 0;
+            deferred = 0;
+        }
+    }
+
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel level) {
+            BUCKETS.remove(level);
+            Long2ObjectLinkedOpenHashMap<Deferred> queues = DEFERRED.remove(level);
+            if (queues != null) {
+                releaseAll(level, queues);
+            }
+        }
+    }
+
+    /**
+     * Przed zapisem świata - odłożone dropy nie mogą przepaść
+     */
+    public static void onServerStopping(ServerStoppingEvent event) {
+        for (Map.Entry<ServerLevel, Long2ObjectLinkedOpenHashMap<Deferred>> entry : DEFERRED.entrySet()) {
+            releaseAll(entry.getKey(), entry.getValue());
+        }
+        DEFERRED.clear();
+        BUCKETS.clear();
+    }
+
+    private static void releaseAll(ServerLevel level, Long2ObjectLinkedOpenHashMap<Deferred> queues) {
+        for (Deferred queue : queues.values()) {
+            StackCompactor.compact(queue.stacks);
+            for (ItemStack stack : queue.stacks) {
+                DropAggregator.spawn(level, queue.origin, stack);
+            }
+        }
+    }
+
+    private static Long2LongOpenHashMap newBuckets() {
+        Long2LongOpenHashMap buckets = new Long2LongOpenHashMap();
+        buckets.defaultReturnValue(MISSING);
+        return buckets;
+    }
+
+    private static long regionKey(Vec3 origin) {
+        int shift = 4 + REGION_SHIFT;
+        return ChunkPos.asLong((int) Math.floor(origin.x) >> shift, (int) Math.floor(origin.z) >> shift);
+    }
+
+    /**
+     * Uzupełnia kubełek o żetony za ticki od ostatniego uzupełnienia
+     */
+    private static long refill(long state, int tick) {
+        if (state == MISSING) {
+            return pack(CAPACITY, tick);
+        }
+        long elapsed = Math.max(0, tick - (int) state);
+        return pack(Math.min(CAPACITY, tokens(state) + elapsed * REFILL_PER_TICK), tick);
+    }
+
+    private static long tokens(long state) {
+        return state >> 32;
+    }
+
+    private static long pack(long tokens, int tick) {
+        return tokens << 32 | (tick & 0xFFFFFFFFL);
+    }
+}
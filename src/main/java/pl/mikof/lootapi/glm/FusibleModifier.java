@@ -0,0 +1,90 @@
+package pl.mikof.lootapi.glm;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+import net.neoforged.neoforge.common.loot.LootModifier;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Bazowa klasa modifierów LootAPI, które można skleić w jeden potok {@link LootPipeline}
+ */
+public abstract class FusibleModifier extends LootModifier {
+    // Reguły z indeksu nie mają własnych warunków - tabele rozwiązuje LootRuleIndex
+    protected static final LootItemCondition[] NO_CONDITIONS = new LootItemCondition[0];
+    // Przedmiot jako numeryczne ID z rejestru - snapshot z innym rejestrem jest odrzucany
+    protected static final StreamCodec<ByteBuf, Item> ITEM_STREAM_CODEC = ByteBufCodecs.idMapper(BuiltInRegistries.ITEM);
+
+    // Etap tworzony raz i współdzielony przez potoki wszystkich tabel tej reguły
+    // (bezstanowy, więc wyścig przy pierwszym użyciu najwyżej zbuduje go dwa razy)
+    private LootPipeline.Stage stage;
+    // To samo bez liczników typu - dla symulacji, które nie mogą zmieniać statystyk serwera
+    private LootPipeline.Stage detachedStage;
+
+    protected FusibleModifier(LootItemCondition[] conditions) {
+        super(conditions);
+    }
+
+    /**
+     * Zwraca etap potoku albo null, jeśli modifier ma własne warunki
+     * (warunki tabel rozwiązuje indeks, inne wymagają zwykłego apply())
+     *
+     * @param counted false = etap z własnymi licznikami, niewidocznymi w {@link LootMetrics#getTypes()}
+     */
+    @Nullable
+    final LootPipeline.Stage fuse(boolean counted) {
+        if (conditions.length != 0) {
+            return null;
+        }
+        if (!counted) {
+            LootPipeline.Stage fused = detachedStage;
+            if (fused == null) {
+                fused = toStage(LootMetrics.detached());
+                detachedStage = fused;
+            }
+            return fused;
+        }
+        LootPipeline.Stage fused = stage;
+        if (fused == null) {
+            fused = toStage(metrics());
+            stage = fused;
+        }
+        return fused;
+    }
+
+    /**
+     * Czy modifier nie ma własnych warunków (tylko takie trafiają do snapshotu)
+     */
+    public final boolean isUnconditional() {
+        return conditions.length == 0;
+    }
+
+    /**
+     * Liczniki typu tego modifiera
+     */
+    protected final LootMetrics.Counters metrics() {
+        return LootMetrics.forType(codec());
+    }
+
+    /**
+     * Etap potoku równoważny doApply()
+     * @param metrics liczniki, które etap aktualizuje (typu albo odłączone, patrz {@link #fuse})
+     */
+    protected abstract LootPipeline.Stage toStage(LootMetrics.Counters metrics);
+
+    /**
+     * Zwraca opis etapu dla {@link LootCalculator} albo null, jeśli modifier ma własne warunki
+     */
+    @Nullable
+    final LootCalculator.Stage analyticStage() {
+        return conditions.length == 0 ? toAnalyticStage() : null;
+    }
+
+    /**
+     * Opis etapu dla {@link LootCalculator} - ten sam rozkład co {@link #toStage}
+     */
+    protected abstract LootCalculator.Stage toAnalyticStage();
+}
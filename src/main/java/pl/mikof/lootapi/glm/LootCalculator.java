@@ -0,0 +1,370 @@
+package pl.mikof.lootapi.glm;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
+import net.minecraft.world.item.Item;
+import net.neoforged.neoforge.common.loot.IGlobalLootModifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kalkulator dokładnych rozkładów dla potoku reguł - bez losowania
+ *
+ * Każdy modifier opisuje swój etap ({@link FusibleModifier#toAnalyticStage()}), a kalkulator
+ * składa je tak samo jak {@link LootPipeline}: etapy źródłowe są niezależne, a każdy stack
+ * przechodzi przez kolejne etapy remove/replace/multiply. Przedmiot stacka zmienia się
+ * deterministycznie, więc stack i jego dodatkowe kopie z multiply kończą jako ten sam przedmiot,
+ * a rozkład ilości zależy tylko od dalszych mnożników.
+ *
+ * Rozkład lootu wygenerowanego przez samą tabelę nie jest znany bez losowania - dla niego
+ * wynik opisuje, co reguły robią z pojedynczym stackiem.
+ */
+public final class LootCalculator {
+    // Ochrona przed wybuchem rozmiaru rozkładu (np. wiele dużych mnożników)
+    private static final int MAX_SUPPORT = 1 << 16;
+
+    private LootCalculator() {
+    }
+
+    /**
+     * Opis etapu dla kalkulatora
+     */
+    public sealed interface Stage permits Remove, Replace, Multiply, Source {
+    }
+
+    /**
+     * Usuwa stacki podanych przedmiotów
+     */
+    public record Remove(Set<Item> items) implements Stage {
+    }
+
+    /**
+     * Zamienia przedmiot stacka (ilość bez zmian)
+     */
+    public record Replace(Map<Item, Item> replacements) implements Stage {
+    }
+
+    /**
+     * Mnoży ilość stacka: pełna część zawsze, ułamek jako dodatkowy stack 1 szt. z tym prawdopodobieństwem
+     */
+    public record Multiply(float multiplier) implements Stage {
+    }
+
+    /**
+     * Dodaje co najwyżej jeden stack
+     * @param reset czy najpierw odrzuca dotychczasowy loot (clear, set_only)
+     * @param chance szansa, że cokolwiek wypadnie
+     * @param outcomes możliwe stacki, prawdopodobieństwa sumują się do 1
+     */
+    public record Source(boolean reset, float chance, List<Outcome> outcomes) implements Stage {
+    }
+
+    /**
+     * Jeden możliwy stack etapu źródłowego - ilość losowana jednostajnie z [minCount, maxCount]
+     */
+    public record Outcome(Item item, double probability, int minCount, int maxCount) {
+    }
+
+    /**
+     * Los stacka wygenerowanego przez tabelę
+     * @param item przedmiot po wszystkich regułach (null = usunięty)
+     * @param meanFactor ile razy rośnie średnia ilość
+     * @param single rozkład ilości dla stacka 1 szt.
+     */
+    public record Fate(@Nullable Item item, double meanFactor, Distribution single) {
+    }
+
+    /**
+     * Wynik dla jednej tabeli
+     * @param supported false, jeśli któraś reguła nie ma opisu (np. ma własne warunki) - pozostałe pola są puste
+     * @param keepsGeneratedLoot czy loot tabeli przechodzi dalej (false po clear / set_only)
+     * @param added rozkład łącznej ilości każdego przedmiotu dodanego przez reguły (na jedno losowanie)
+     * @param generated los przedmiotów tabeli, których dotyczą reguły remove/replace
+     * @param otherItems los pozostałych przedmiotów tabeli
+     */
+    public record Analysis(boolean supported, int ruleCount, boolean keepsGeneratedLoot,
+                           Map<Item, Distribution> added, Map<Item, Fate> generated, @Nullable Fate otherItems) {
+        static Analysis unsupported(int ruleCount) {
+            return new Analysis(false, ruleCount, true, Map.of(), Map.of(), null);
+        }
+    }
+
+    /**
+     * Rozkład ilości: probabilities[k] = P(ilość = k)
+     */
+    public record Distribution(double[] probabilities) {
+        static final Distribution ZERO = new Distribution(new double[]{1.0});
+
+        static Distribution exactly(int count) {
+            double[] probabilities = new double[count + 1];
+            probabilities[count] = 1.0;
+            return new Distribution(probabilities);
+        }
+
+        public double mean() {
+            double mean = 0;
+            for (int k = 1; k < probabilities.length; k++) {
+                mean += k * probabilities[k];
+            }
+            return mean;
+        }
+
+        public double variance() {
+            double mean = mean();
+            double squares = 0;
+            for (int k = 1; k < probabilities.length; k++) {
+                squares += (double) k * k * probabilities[k];
+            }
+            return Math.max(0.0, squares - mean * mean);
+        }
+
+        /**
+         * Najmniejsza ilość, dla której dystrybuanta osiąga {@code quantile}
+         */
+        public int percentile(double quantile) {
+            double cumulative = 0;
+            for (int k = 0; k < probabilities.length; k++) {
+                cumulative += probabilities[k];
+                // Tolerancja na błędy zaokrągleń sumy
+                if (cumulative >= quantile - 1e-12) {
+                    return k;
+                }
+            }
+            return max();
+        }
+
+        public int max() {
+            for (int k = probabilities.length - 1; k > 0; k--) {
+                if (probabilities[k] > 0) {
+                    return k;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * P(ilość > 0)
+         */
+        public double dropRate() {
+            return 1.0 - probabilities[0];
+        }
+
+        /**
+         * Suma dwóch niezależnych ilości (splot)
+         */
+        Distribution plus(Distribution other) {
+            double[] a = probabilities;
+            double[] b = other.probabilities;
+            if (a.length + b.length - 1 > MAX_SUPPORT) {
+                throw new ArithmeticException("Distribution too wide");
+            }
+            double[] sum = new double[a.length + b.length - 1];
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] == 0) {
+                    continue;
+                }
+                for (int j = 0; j < b.length; j++) {
+                    sum[i + j] += a[i] * b[j];
+                }
+            }
+            return new Distribution(sum);
+        }
+
+        /**
+         * Dodaje {@code weight} * other do tablicy mieszanki
+         */
+        static double[] mixInto(double[] mixture, Distribution other, double weight) {
+            double[] target = mixture.length >= other.probabilities.length
+                    ? mixture
+                    : Arrays.copyOf(mixture, other.probabilities.length);
+            for (int k = 0; k < other.probabilities.length; k++) {
+                target[k] += weight * other.probabilities[k];
+            }
+            return target;
+        }
+    }
+
+    /**
+     * Liczy rozkłady dla potoku tabeli
+     * Reguły z warunkami kontekstu zależą od losowania (wymiar, narzędzie...) - takiego potoku nie da się opisać jednym rozkładem
+     */
+    public static Analysis analyze(LootPipeline pipeline) {
+        return pipeline.isConditional() ? Analysis.unsupported(pipeline.getRules().size()) : analyze(pipeline.getRules());
+    }
+
+    /**
+     * Liczy rozkłady dla reguł tabeli (w kolejności rejestracji, jak {@link LootPipeline#compile})
+     */
+    public static Analysis analyze(List<IGlobalLootModifier> rules) {
+        List<Stage> stages = new ArrayList<>(rules.size());
+        boolean keepsGeneratedLoot = true;
+        for (IGlobalLootModifier rule : rules) {
+            Stage stage = rule instanceof FusibleModifier fusible ? fusible.analyticStage() : null;
+            if (stage == null) {
+                return Analysis.unsupported(rules.size());
+            }
+            // Wszystko przed clear / set_only i tak zostanie odrzucone
+            if (stage instanceof Source source && source.reset()) {
+                stages.clear();
+                keepsGeneratedLoot = false;
+            }
+            stages.add(stage);
+        }
+
+        try {
+            return new Calculation(stages).run(rules.size(), keepsGeneratedLoot);
+        } catch (ArithmeticException e) {
+            return Analysis.unsupported(rules.size());
+        }
+    }
+
+    /**
+     * Obliczenia dla jednej listy etapów - rozkłady ilości są zapamiętywane per (etap, ilość)
+     */
+    private static final class Calculation {
+        private final Stage[] stages;
+        private final Long2ObjectOpenHashMap<Distribution> transfers = new Long2ObjectOpenHashMap<>();
+
+        Calculation(List<Stage> stages) {
+            this.stages = stages.toArray(new Stage[0]);
+        }
+
+        Analysis run(int ruleCount, boolean keepsGeneratedLoot) {
+            // Źródła są niezależne - rozkład łączny przedmiotu to splot ich rozkładów brzegowych
+            Map<Item, Distribution> added = new Reference2ObjectLinkedOpenHashMap<>();
+            for (int i = 0; i < stages.length; i++) {
+                if (stages[i] instanceof Source source) {
+                    for (Map.Entry<Item, Distribution> contribution : contributions(source, i + 1).entrySet()) {
+                        added.merge(contribution.getKey(), contribution.getValue(), Distribution::plus);
+                    }
+                }
+            }
+
+            Map<Item, Fate> generated = new Reference2ObjectLinkedOpenHashMap<>();
+            Fate otherItems = null;
+            if (keepsGeneratedLoot) {
+                for (Stage stage : stages) {
+                    if (stage instanceof Remove remove) {
+                        remove.items().forEach(item -> generated.computeIfAbsent(item, i -> fate(i, 0)));
+                    } else if (stage instanceof Replace replace) {
+                        replace.replacements().keySet().forEach(item -> generated.computeIfAbsent(item, i -> fate(i, 0)));
+                    }
+                }
+                // Przedmiot, którego nie dotyczy żadne remove/replace - tylko mnożniki
+                otherItems = new Fate(null, meanFactor(0), transfer(0, 1));
+            }
+            return new Analysis(true, ruleCount, keepsGeneratedLoot, added, generated, otherItems);
+        }
+
+        /**
+         * Rozkład brzegowy każdego przedmiotu, który może wyjść z etapu źródłowego
+         */
+        private Map<Item, Distribution> contributions(Source source, int next) {
+            Map<Item, double[]> mixtures = new Reference2ObjectLinkedOpenHashMap<>();
+            Map<Item, double[]> weights = new Reference2ObjectLinkedOpenHashMap<>();
+            for (Outcome outcome : source.outcomes()) {
+                double probability = source.chance() * outcome.probability();
+                Item item = finalItem(outcome.item(), next);
+                if (item == null || probability <= 0) {
+                    continue;
+                }
+                int counts = outcome.maxCount() - outcome.minCount() + 1;
+                double[] mixture = mixtures.getOrDefault(item, new double[1]);
+                for (int count = outcome.minCount(); count <= outcome.maxCount(); count++) {
+                    mixture = Distribution.mixInto(mixture, transfer(next, count), probability / counts);
+                }
+                mixtures.put(item, mixture);
+                weights.computeIfAbsent(item, i -> new double[1])[0] += probability;
+            }
+
+            Map<Item, Distribution> result = new Reference2ObjectLinkedOpenHashMap<>();
+            for (Map.Entry<Item, double[]> entry : mixtures.entrySet()) {
+                double[] mixture = entry.getValue();
+                // Pozostała masa: źródło nie dało tego przedmiotu
+                mixture[0] += 1.0 - weights.get(entry.getKey())[0];
+                result.put(entry.getKey(), new Distribution(mixture));
+            }
+            return result;
+        }
+
+        private Fate fate(Item item, int from) {
+            Item result = finalItem(item, from);
+            if (result == null) {
+                return new Fate(null, 0.0, Distribution.ZERO);
+            }
+            return new Fate(result, meanFactor(from), transfer(from, 1));
+        }
+
+        /**
+         * Przedmiot stacka po etapach od {@code from} (null = usunięty)
+         */
+        @Nullable
+        private Item finalItem(Item item, int from) {
+            for (int i = from; i < stages.length && item != null; i++) {
+                if (stages[i] instanceof Remove remove && remove.items().contains(item)) {
+                    item = null;
+                } else if (stages[i] instanceof Replace replace) {
+                    item = replace.replacements().getOrDefault(item, item);
+                }
+            }
+            return item;
+        }
+
+        /**
+         * Współczynnik średniej: E[floor(k*m) + Bernoulli(ułamek)] = k*m, więc mnożniki się mnożą
+         */
+        private double meanFactor(int from) {
+            double factor = 1.0;
+            for (int i = from; i < stages.length; i++) {
+                if (stages[i] instanceof Multiply multiply && multiply.multiplier() > 1.0f) {
+                    factor *= multiply.multiplier();
+                }
+            }
+            return factor;
+        }
+
+        /**
+         * Rozkład łącznej ilości ze stacka {@code count} szt., który przeszedł etapy od {@code from}
+         * (przedmiot nie jest usuwany - to sprawdza {@link #finalItem})
+         */
+        private Distribution transfer(int from, int count) {
+            int stage = from;
+            while (stage < stages.length
+                    && !(stages[stage] instanceof Multiply multiply && multiply.multiplier() > 1.0f)) {
+                stage++;
+            }
+            if (stage == stages.length) {
+                return Distribution.exactly(count);
+            }
+
+            long key = (long) stage << 32 | count;
+            Distribution cached = transfers.get(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            // Te same obliczenia na float co w MultiplyDropsModifier
+            float multiplier = ((Multiply) stages[stage]).multiplier();
+            float newAmount = count * multiplier;
+            int baseCount = (int) newAmount;
+            float fractional = newAmount - baseCount;
+            if (baseCount > MAX_SUPPORT) {
+                throw new ArithmeticException("Distribution too wide");
+            }
+
+            Distribution base = transfer(stage + 1, baseCount);
+            Distribution result = base;
+            if (fractional > 0) {
+                double[] extra = Distribution.mixInto(new double[]{1.0 - fractional}, transfer(stage + 1, 1), fractional);
+                result = base.plus(new Distribution(extra));
+            }
+            transfers.put(key, result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package pl.mikof.lootapi.glm;
+
+import com.mojang.serialization.MapCodec;
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.neoforge.registries.NeoForgeRegistries;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liczniki wykonania reguł - per typ modifiera i per tabela
+ *
+ * LongAdder rozkłada zapisy na komórki per wątek, więc wątek serwera nie rywalizuje o licznik
+ * z innymi wątkami losującymi loot. Czas i alokacje są mierzone per tabela: sklejony potok
+ * wykonuje wszystkie reguły tabeli w jednym przejściu, więc nie da się ich rozdzielić na reguły.
+ */
+public final class LootMetrics {
+    private static final Map<ResourceLocation, Counters> TABLES = new ConcurrentHashMap<>();
+    private static final Map<MapCodec<?>, Counters> TYPES = new ConcurrentHashMap<>();
+    // -Dlootapi.metrics.allocations=true - bajty alokowane na losowanie (dwa wywołania ThreadMXBean na losowanie)
+    // null = pomiar wyłączony albo JVM nie potrafi liczyć alokacji per wątek
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+            Boolean.getBoolean("lootapi.metrics.allocations") ? allocationBean() : null;
+
+    private LootMetrics() {
+    }
+
+    /**
+     * Liczniki tabeli (tworzone przy pierwszym losowaniu)
+     */
+    public static Counters forTable(ResourceLocation tableId) {
+        Counters counters = TABLES.get(tableId);
+        return counters != null ? counters : TABLES.computeIfAbsent(tableId, id -> new Counters());
+    }
+
+    /**
+     * Liczniki typu modifiera - pobierane raz przy kompilacji potoku, nie przy każdym losowaniu
+     */
+    public static Counters forType(MapCodec<?> codec) {
+        return TYPES.computeIfAbsent(codec, c -> new Counters());
+    }
+
+    /**
+     * Liczniki spoza rejestru - dla potoków symulacji, które nie mogą zmieniać statystyk serwera
+     */
+    static Counters detached() {
+        return new Counters();
+    }
+
+    /**
+     * Bajty zaalokowane dotąd przez bieżący wątek (0, jeśli JVM tego nie wspiera)
+     */
+    static long allocatedBytes() {
+        return ALLOCATIONS != null ? ALLOCATIONS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Czy liczniki bajtów zaalokowanych są włączone i dostępne
+     */
+    public static boolean isAllocationTrackingSupported() {
+        return ALLOCATIONS != null;
+    }
+
+    /**
+     * Liczniki wszystkich tabel, w których wykonały się reguły
+     */
+    public static Map<ResourceLocation, Counters> getTables() {
+        return Collections.unmodifiableMap(TABLES);
+    }
+
+    /**
+     * Liczniki typów modifierów (klucz = ID typu z rejestru GLM)
+     */
+    public static Map<ResourceLocation, Counters> getTypes() {
+        Map<ResourceLocation, Counters> types = new HashMap<>();
+        for (Map.Entry<MapCodec<?>, Counters> entry : TYPES.entrySet()) {
+            ResourceLocation id = NeoForgeRegistries.GLOBAL_LOOT_MODIFIER_SERIALIZERS.getKey(entry.getKey());
+            if (id != null) {
+                types.put(id, entry.getValue());
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Zeruje wszystkie liczniki (obiekty liczników zostają - potoki trzymają do nich referencje)
+     */
+    public static void reset() {
+        TABLES.values().forEach(Counters::reset);
+        TYPES.values().forEach(Counters::reset);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return bean;
+        }
+        return null;
+    }
+
+    /**
+     * Zestaw liczników jednej tabeli albo jednego typu
+     */
+    public static final class Counters {
+        // Tabela: losowania tabeli z regułami (tabele bez reguł nie są liczone) / typ: stacki i losowania obsłużone przez etap
+        final LongAdder invocations = new LongAdder();
+        // Tabela: losowania z regułami / typ: reguła faktycznie coś zmieniła (przedmiot pasował, szansa wypadła)
+        final LongAdder hits = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder stacksAdded = new LongAdder();
+        final LongAdder stacksRemoved = new LongAdder();
+        final LongAdder bytesAllocated = new LongAdder();
+
+        private Counters() {
+        }
+
+        /**
+         * Zapisuje czas, alokacje i zmianę liczby stacków jednego wykonania potoku albo reguły
+         */
+        void record(long startNanos, long startBytes, int stacksBefore, int stacksAfter) {
+            nanos.add(System.nanoTime() - startNanos);
+            if (startBytes != 0) {
+                bytesAllocated.add(allocatedBytes() - startBytes);
+            }
+            if (stacksAfter > stacksBefore) {
+                stacksAdded.add(stacksAfter - stacksBefore);
+            } else if (stacksAfter < stacksBefore) {
+                stacksRemoved.add(stacksBefore - stacksAfter);
+            }
+        }
+
+        public long getInvocations() {
+            return invocations.sum();
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        public long getStacksAdded() {
+            return stacksAdded.sum();
+        }
+
+        public long getStacksRemoved() {
+            return stacksRemoved.sum();
+        }
+
+        public long getBytesAllocated() {
+            return bytesAllocated.sum();
+        }
+
+        private void reset() {
+            invocations.reset();
+            hits.reset();
+            nanos.reset();
+            stacksAdded.reset();
+            stacksRemoved.reset();
+            bytesAllocated.reset();
+        }
+    }
+}
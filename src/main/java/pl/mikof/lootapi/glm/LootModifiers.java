@@ -1,12 +1,16 @@
 package pl.mikof.lootapi.glm;
 
 import com.mojang.serialization.MapCodec;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.StreamCodec;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.neoforge.common.loot.IGlobalLootModifier;
 import net.neoforged.neoforge.registries.DeferredRegister;
 import net.neoforged.neoforge.registries.NeoForgeRegistries;
+import org.jetbrains.annotations.Nullable;
 import pl.mikof.lootapi.LootAPI;
 
+import java.util.Map;
 import java.util.function.Supplier;
 
 /**
@@ -23,9 +27,15 @@ public class LootModifiers {
     public static final Supplier<MapCodec<RemoveItemModifier>> REMOVE_ITEM =
             GLM_CODECS.register("remove_item", () -> RemoveItemModifier.CODEC);
 
+    public static final Supplier<MapCodec<RemoveItemsModifier>> REMOVE_ITEMS =
+            GLM_CODECS.register("remove_items", () -> RemoveItemsModifier.CODEC);
+
     public static final Supplier<MapCodec<ReplaceItemModifier>> REPLACE_ITEM =
             GLM_CODECS.register("replace_item", () -> ReplaceItemModifier.CODEC);
 
+    public static final Supplier<MapCodec<ReplaceItemsModifier>> REPLACE_ITEMS =
+            GLM_CODECS.register("replace_items", () -> ReplaceItemsModifier.CODEC);
+
     public static final Supplier<MapCodec<MultiplyDropsModifier>> MULTIPLY_DROPS =
             GLM_CODECS.register("multiply_drops", () -> MultiplyDropsModifier.CODEC);
 
@@ -35,6 +45,39 @@ public class LootModifiers {
     public static final Supplier<MapCodec<SetOnlyDropModifier>> SET_ONLY_DROP =
             GLM_CODECS.register("set_only_drop", () -> SetOnlyDropModifier.CODEC);
 
+    public static final Supplier<MapCodec<WeightedChoiceModifier>> WEIGHTED_CHOICE =
+            GLM_CODECS.register("weighted_choice", () -> WeightedChoiceModifier.CODEC);
+
+    public static final Supplier<MapCodec<DeliverToInventoryModifier>> DELIVER_TO_INVENTORY =
+            GLM_CODECS.register("deliver_to_inventory", () -> DeliverToInventoryModifier.CODEC);
+
+    // Jeden modifier obsługujący wszystkie reguły LootAPI przez indeks tabel
+    public static final Supplier<MapCodec<DispatchModifier>> DISPATCH =
+            GLM_CODECS.register("dispatch", () -> DispatchModifier.CODEC);
+
+    // Binarne kodeki reguł dla snapshotu skompilowanych reguł (klucz = MapCodec typu)
+    private static final Map<MapCodec<?>, StreamCodec<ByteBuf, ? extends FusibleModifier>> STREAM_CODECS = Map.ofEntries(
+            Map.entry(AddItemModifier.CODEC, AddItemModifier.STREAM_CODEC),
+            Map.entry(RemoveItemModifier.CODEC, RemoveItemModifier.STREAM_CODEC),
+            Map.entry(RemoveItemsModifier.CODEC, RemoveItemsModifier.STREAM_CODEC),
+            Map.entry(ReplaceItemModifier.CODEC, ReplaceItemModifier.STREAM_CODEC),
+            Map.entry(ReplaceItemsModifier.CODEC, ReplaceItemsModifier.STREAM_CODEC),
+            Map.entry(MultiplyDropsModifier.CODEC, MultiplyDropsModifier.STREAM_CODEC),
+            Map.entry(ClearTableModifier.CODEC, ClearTableModifier.STREAM_CODEC),
+            Map.entry(SetOnlyDropModifier.CODEC, SetOnlyDropModifier.STREAM_CODEC),
+            Map.entry(WeightedChoiceModifier.CODEC, WeightedChoiceModifier.STREAM_CODEC),
+            Map.entry(DeliverToInventoryModifier.CODEC, DeliverToInventoryModifier.STREAM_CODEC)
+    );
+
+    /**
+     * Zwraca binarny kodek dla typu modifiera
+     * @return null dla typów spoza LootAPI (takich reguł nie da się zapisać w snapshocie)
+     */
+    @Nullable
+    public static StreamCodec<ByteBuf, ? extends FusibleModifier> streamCodec(MapCodec<?> codec) {
+        return STREAM_CODECS.get(codec);
+    }
+
     /**
      * Rejestruje wszystkie GLM do event bus
      */
@@ -0,0 +1,494 @@
+package pl.mikof.lootapi.glm;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.neoforged.neoforge.common.loot.IGlobalLootModifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Potok reguł jednej tabeli, kompilowany przy finalizacji
+ *
+ * Reguły sklejone w potok wykonują się w jednym przejściu po wygenerowanym loocie:
+ * każdy stack przechodzi kolejno przez etapy remove/replace/multiply, a przedmioty z add
+ * wchodzą do potoku w miejscu swojej reguły. Wynik ma ten sam rozkład i tę samą kolejność
+ * co aplikowanie reguł jedna po drugiej. Na końcu stacki są scalane i dzielone na maksymalny
+ * rozmiar stacka ({@link StackCompactor}) - ta sama liczba przedmiotów w jak najmniejszej liczbie stacków.
+ *
+ * W tabeli z regułami warunkowymi ({@link LootRuleCondition}) każdy etap ma numer swojego warunku.
+ * Na początku losowania każdy różny warunek jest sprawdzany raz, a etapy z niespełnionym warunkiem
+ * są pomijane - nic nie jest kompilowane ani alokowane przy losowaniu (kontekst i bitset wątku są używane ponownie).
+ */
+public final class LootPipeline {
+    private static final Stage[] NO_STAGES = new Stage[0];
+    public static final LootPipeline EMPTY = new LootPipeline(List.of(), NO_STAGES, null, null, null, null, null);
+
+    // Bufor na wygenerowany loot, gdy wynik jest budowany w tej samej liście (jeden na wątek)
+    private static final ThreadLocal<ObjectArrayList<ItemStack>> INPUT = ThreadLocal.withInitial(ObjectArrayList::new);
+    // Spełnione warunki losowań potoków z warunkami na tym wątku (wielokrotnego użytku)
+    private static final ThreadLocal<Rolls> ROLLS = ThreadLocal.withInitial(Rolls::new);
+
+    // Reguły źródłowe w kolejności rejestracji (dla LootCalculator)
+    private final List<IGlobalLootModifier> rules;
+    private final Stage[] stages;
+    // false = same etapy źródłowe, wygenerowany loot przechodzi bez zmian
+    private final boolean hasStackStages;
+    // Liczniki reguły clear / set_only, gdy pierwszy etap odrzuca wygenerowany loot (null = nie odrzuca)
+    private final LootMetrics.Counters resetMetrics;
+    // Gdy któraś reguła nie daje się skleić - zwykłe wykonanie po kolei
+    private final IGlobalLootModifier[] sequential;
+    private final LootMetrics.Counters[] sequentialMetrics;
+    // Scalanie stacków po ostatnim etapie (tylko potoki, które cokolwiek robią)
+    private final boolean compact;
+    // Liczniki reguły deliver_to_inventory, gdy końcowy loot trafia do ekwipunku gracza (null = do świata)
+    private final LootMetrics.Counters deliverMetrics;
+    // Warunki etapów (null = potok bez warunków)
+    private final Conditions conditions;
+    // Z czego skompilowano etapy - do kompilacji kopii bez liczników (null dla EMPTY)
+    private final Recipe recipe;
+
+    private LootPipeline(List<IGlobalLootModifier> rules, Stage[] stages, LootMetrics.Counters resetMetrics,
+                         IGlobalLootModifier[] sequential, LootMetrics.Counters deliverMetrics, Conditions conditions,
+                         Recipe recipe) {
+        this.rules = rules;
+        this.stages = stages;
+        this.hasStackStages = Arrays.stream(stages).anyMatch(stage -> stage instanceof StackStage);
+        this.resetMetrics = resetMetrics;
+        this.sequential = sequential;
+        this.sequentialMetrics = sequential == null ? null : new LootMetrics.Counters[sequential.length];
+        this.deliverMetrics = deliverMetrics;
+        this.conditions = conditions;
+        this.recipe = recipe;
+        this.compact = StackCompactor.ENABLED && (stages.length > 0 || sequential != null || deliverMetrics != null);
+        if (sequential != null) {
+            for (int i = 0; i < sequential.length; i++) {
+                sequentialMetrics[i] = counters(sequential[i], recipe.counted());
+            }
+        }
+    }
+
+    /**
+     * Warunki potoku: sprawdzenia różnych warunków i numer warunku każdego etapu (-1 = bez warunku)
+     *
+     * @param slots numer warunku każdego etapu albo reguły wykonywanej po kolei
+     * @param resets liczniki etapów clear / set_only (null dla pozostałych etapów)
+     * @param deliverSlots warunki reguł deliver_to_inventory (wystarczy jeden spełniony)
+     */
+    private record Conditions(LootRuleCondition.Check[] checks, int[] slots, LootMetrics.Counters[] resets,
+                              int[] deliverSlots) {
+    }
+
+    /**
+     * Dane kompilacji: reguły etapów (po optymalizacji), ich warunki (null = bez warunków) i czy etapy liczą metryki
+     */
+    private record Recipe(List<IGlobalLootModifier> rules, @Nullable List<LootRuleCondition> conditions, boolean counted) {
+    }
+
+    /**
+     * Kompiluje reguły tabeli (w kolejności rejestracji) do potoku
+     */
+    public static LootPipeline compile(List<IGlobalLootModifier> rules) {
+        return compile(rules, rules);
+    }
+
+    /**
+     * Kompiluje potok z równoważnego, zoptymalizowanego zestawu reguł ({@link LootRuleOptimizer})
+     * - {@link #getRules()} zwraca oryginalne reguły
+     */
+    public static LootPipeline compile(List<IGlobalLootModifier> original, List<IGlobalLootModifier> rules) {
+        return compile(original, rules, true);
+    }
+
+    private static LootPipeline compile(List<IGlobalLootModifier> original, List<IGlobalLootModifier> rules, boolean counted) {
+        Recipe recipe = new Recipe(List.copyOf(rules), null, counted);
+        // deliver_to_inventory to ustawienie całej tabeli - sprawdzane w oryginalnych regułach,
+        // bo optymalizator usuwa je jako etapy bez wpływu na rozkład
+        LootMetrics.Counters deliverMetrics = null;
+        for (IGlobalLootModifier rule : original) {
+            if (rule instanceof DeliverToInventoryModifier) {
+                deliverMetrics = counters(rule, counted);
+                break;
+            }
+        }
+        if (rules.isEmpty()) {
+            return original.isEmpty() ? EMPTY
+                    : new LootPipeline(List.copyOf(original), NO_STAGES, null, null, deliverMetrics, null, recipe);
+        }
+
+        List<Stage> fused = new ArrayList<>(rules.size());
+        LootMetrics.Counters resetMetrics = null;
+        for (IGlobalLootModifier rule : rules) {
+            if (rule instanceof DeliverToInventoryModifier) {
+                continue;
+            }
+            Stage stage = rule instanceof FusibleModifier fusible ? fusible.fuse(counted) : null;
+            if (stage == null) {
+                IGlobalLootModifier[] sequential = rules.stream()
+                        .filter(r -> !(r instanceof DeliverToInventoryModifier))
+                        .toArray(IGlobalLootModifier[]::new);
+                return new LootPipeline(List.copyOf(original), NO_STAGES, null, sequential, deliverMetrics, null, recipe);
+            }
+            // Wszystko przed clear / set_only i tak zostanie odrzucone
+            if (stage instanceof ResetStage) {
+                fused.clear();
+                resetMetrics = counters(rule, counted);
+            }
+            fused.add(stage);
+        }
+
+        return new LootPipeline(List.copyOf(original), fused.toArray(NO_STAGES), resetMetrics, null, deliverMetrics, null, recipe);
+    }
+
+    /**
+     * Kompiluje potok tabeli, której reguły mają warunki kontekstu
+     * Bez optymalizatora - łączenie reguł zakłada, że każda z nich się wykona
+     *
+     * @param rules reguły w kolejności rejestracji
+     * @param conditions warunek każdej reguły (ta sama kolejność)
+     */
+    public static LootPipeline compileConditional(List<IGlobalLootModifier> rules, List<LootRuleCondition> conditions) {
+        return compileConditional(rules, conditions, true);
+    }
+
+    private static LootPipeline compileConditional(List<IGlobalLootModifier> rules, List<LootRuleCondition> conditions,
+                                                   boolean counted) {
+        Recipe recipe = new Recipe(List.copyOf(rules), List.copyOf(conditions), counted);
+        // Reguły z tym samym warunkiem dzielą jedno sprawdzenie
+        Map<LootRuleCondition, Integer> distinct = new HashMap<>();
+        List<LootRuleCondition.Check> checks = new ArrayList<>();
+        int[] ruleSlots = new int[rules.size()];
+        for (int i = 0; i < ruleSlots.length; i++) {
+            LootRuleCondition condition = conditions.get(i);
+            ruleSlots[i] = condition.isAlways() ? -1 : distinct.computeIfAbsent(condition, c -> {
+                checks.add(c.compile());
+                return checks.size() - 1;
+            });
+        }
+        LootRuleCondition.Check[] compiledChecks = checks.toArray(new LootRuleCondition.Check[0]);
+
+        LootMetrics.Counters deliverMetrics = null;
+        IntArrayList deliverSlots = new IntArrayList();
+        List<Stage> fused = new ArrayList<>(rules.size());
+        IntArrayList stageSlots = new IntArrayList(rules.size());
+        List<LootMetrics.Counters> resets = new ArrayList<>(rules.size());
+        boolean fusible = true;
+        for (int i = 0; i < ruleSlots.length; i++) {
+            IGlobalLootModifier rule = rules.get(i);
+            if (rule instanceof DeliverToInventoryModifier) {
+                deliverMetrics = counters(rule, counted);
+                deliverSlots.add(ruleSlots[i]);
+                continue;
+            }
+            Stage stage = rule instanceof FusibleModifier modifier ? modifier.fuse(counted) : null;
+            if (stage == null) {
+                fusible = false;
+                continue;
+            }
+            // Bezwarunkowy clear / set_only odrzuca wszystko przed sobą, warunkowy - tylko gdy jest spełniony
+            if (stage instanceof ResetStage && ruleSlots[i] < 0) {
+                fused.clear();
+                stageSlots.clear();
+                resets.clear();
+            }
+            fused.add(stage);
+            stageSlots.add(ruleSlots[i]);
+            resets.add(stage instanceof ResetStage ? counters(rule, counted) : null);
+        }
+
+        if (!fusible) {
+            List<IGlobalLootModifier> sequential = new ArrayList<>(rules.size());
+            IntArrayList sequentialSlots = new IntArrayList(rules.size());
+            for (int i = 0; i < ruleSlots.length; i++) {
+                if (!(rules.get(i) instanceof DeliverToInventoryModifier)) {
+                    sequential.add(rules.get(i));
+                    sequentialSlots.add(ruleSlots[i]);
+                }
+            }
+            return new LootPipeline(List.copyOf(rules), NO_STAGES, null, sequential.toArray(new IGlobalLootModifier[0]),
+                    deliverMetrics, new Conditions(compiledChecks, sequentialSlots.toIntArray(),
+                            new LootMetrics.Counters[0], deliverSlots.toIntArray()), recipe);
+        }
+        return new LootPipeline(List.copyOf(rules), fused.toArray(NO_STAGES), null, null, deliverMetrics,
+                new Conditions(compiledChecks, stageSlots.toIntArray(), resets.toArray(new LootMetrics.Counters[0]),
+                        deliverSlots.toIntArray()), recipe);
+    }
+
+    /**
+     * Kopia potoku z etapami, które nie aktualizują liczników typów (/lootapi stats types)
+     * Symulacja wykonuje te same reguły co serwer, ale nie może zmieniać jego statystyk
+     */
+    public LootPipeline withoutMetrics() {
+        if (recipe == null || !recipe.counted()) {
+            return this;
+        }
+        return recipe.conditions() == null
+                ? compile(rules, recipe.rules(), false)
+                : compileConditional(recipe.rules(), recipe.conditions(), false);
+    }
+
+    private static LootMetrics.Counters counters(IGlobalLootModifier rule, boolean counted) {
+        return counted ? LootMetrics.forType(rule.codec()) : LootMetrics.detached();
+    }
+
+    /**
+     * Wykonuje potok na wygenerowanym loocie
+     * Wynik trafia do tej samej listy - poza stackami przekazywanymi do świata nic nie jest alokowane
+     */
+    public ObjectArrayList<ItemStack> apply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
+        if (conditions == null) {
+            return apply(generatedLoot, context, null);
+        }
+        // Każdy różny warunek jest sprawdzany raz, wynik trafia do bitsetu wątku
+        Rolls rolls = ROLLS.get();
+        long[] passed = rolls.enter(context, conditions.checks());
+        try {
+            return apply(generatedLoot, context, passed);
+        } finally {
+            rolls.exit();
+        }
+    }
+
+    /**
+     * Wykonuje potok z już sprawdzonymi warunkami
+     * @param passed spełnione warunki tego losowania (null = potok bez warunków)
+     */
+    private ObjectArrayList<ItemStack> apply(ObjectArrayList<ItemStack> generatedLoot, LootContext context, long[] passed) {
+        if (sequential != null) {
+            for (int i = 0; i < sequential.length; i++) {
+                if (!isActive(i, passed)) {
+                    continue;
+                }
+                LootMetrics.Counters metrics = sequentialMetrics[i];
+                int stacksBefore = generatedLoot.size();
+                long startBytes = LootMetrics.allocatedBytes();
+                long start = System.nanoTime();
+                generatedLoot = sequential[i].apply(generatedLoot, context);
+                metrics.invocations.increment();
+                metrics.record(start, startBytes, stacksBefore, generatedLoot.size());
+            }
+            return finish(generatedLoot, context, passed);
+        }
+        if (stages.length == 0) {
+            return finish(generatedLoot, context, passed);
+        }
+
+        // Ostatni spełniony clear / set_only odrzuca wygenerowany loot i wszystkie etapy przed nim
+        int first = 0;
+        LootMetrics.Counters reset = resetMetrics;
+        if (conditions != null) {
+            for (int i = stages.length - 1; i >= 0; i--) {
+                if (conditions.resets()[i] != null && isActive(i, passed)) {
+                    first = i;
+                    reset = conditions.resets()[i];
+                    break;
+                }
+            }
+        }
+
+        // Najpierw wygenerowany loot (jak przy kolejnych doApply), potem przedmioty z etapów źródłowych
+        if (reset != null) {
+            reset.stacksRemoved.add(generatedLoot.size());
+            generatedLoot.clear();
+        } else if (hasStackStages) {
+            // Wejście odkładane do bufora wątku, lista jest wypełniana od nowa wynikiem etapów
+            ObjectArrayList<ItemStack> input = INPUT.get();
+            if (!input.isEmpty()) {
+                // Zagnieżdżone wywołanie na tym samym wątku - bufor jest zajęty
+                input = new ObjectArrayList<>(generatedLoot.size());
+            }
+            input.addAll(generatedLoot);
+            generatedLoot.clear();
+            try {
+                for (int i = 0; i < input.size(); i++) {
+                    push(input.get(i), 0, context, generatedLoot, passed);
+                }
+            } finally {
+                input.clear();
+            }
+        }
+        for (int i = first; i < stages.length; i++) {
+            if (stages[i] instanceof SourceStage source && isActive(i, passed)) {
+                ItemStack stack = source.generate(context);
+                if (stack != null && !stack.isEmpty()) {
+                    push(stack, i + 1, context, generatedLoot, passed);
+                }
+            }
+        }
+        return finish(generatedLoot, context, passed);
+    }
+
+    /**
+     * Czy etap (albo reguła wykonywana po kolei) o podanym indeksie działa w tym losowaniu
+     */
+    private boolean isActive(int index, long[] passed) {
+        return passed == null || passes(conditions.slots()[index], passed);
+    }
+
+    private static boolean passes(int slot, long[] passed) {
+        return slot < 0 || (passed[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Końcowe kroki: scalenie stacków i ewentualne dostarczenie do ekwipunku gracza
+     */
+    private ObjectArrayList<ItemStack> finish(ObjectArrayList<ItemStack> loot, LootContext context, long[] passed) {
+        if (compact) {
+            StackCompactor.compact(loot);
+        }
+        if (deliverMetrics != null && delivers(passed)) {
+            DeliverToInventoryModifier.deliver(loot, context, deliverMetrics);
+        }
+        return loot;
+    }
+
+    private boolean delivers(long[] passed) {
+        if (passed == null) {
+            return true;
+        }
+        for (int slot : conditions.deliverSlots()) {
+            if (passes(slot, passed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Przepuszcza stack przez etapy od indeksu {@code from}, wynik trafia do {@code out}
+     * Wywoływane przez etapy w trakcie {@link #apply} - w potoku z warunkami czyta warunki bieżącego losowania wątku
+     */
+    public void push(ItemStack stack, int from, LootContext context, ObjectArrayList<ItemStack> out) {
+        push(stack, from, context, out, conditions == null ? null : ROLLS.get().current());
+    }
+
+    private void push(ItemStack stack, int from, LootContext context, ObjectArrayList<ItemStack> out, long[] passed) {
+        for (int i = from; i < stages.length; i++) {
+            if (stages[i] instanceof StackStage stackStage && isActive(i, passed)) {
+                stackStage.accept(stack, context, this, i + 1, out);
+                return;
+            }
+        }
+        out.add(stack);
+    }
+
+    /**
+     * Warunki losowań potoków z warunkami na jednym wątku - ramka na każde zagnieżdżone losowanie
+     * Ramki (kontekst losowania i bitset) są używane ponownie, więc losowanie niczego nie alokuje
+     */
+    private static final class Rolls {
+        private RollContext[] contexts = new RollContext[2];
+        private long[][] bits = new long[2][];
+        private int depth;
+
+        /**
+         * Sprawdza każdy warunek raz i zwraca bitset spełnionych warunków nowej ramki
+         */
+        long[] enter(LootContext context, LootRuleCondition.Check[] checks) {
+            if (depth == contexts.length) {
+                contexts = Arrays.copyOf(contexts, depth * 2);
+                bits = Arrays.copyOf(bits, depth * 2);
+            }
+            RollContext roll = contexts[depth];
+            if (roll == null) {
+                roll = new RollContext();
+                contexts[depth] = roll;
+            }
+            int words = (checks.length + 63) >>> 6;
+            long[] result = bits[depth];
+            if (result == null || result.length < words) {
+                result = new long[Math.max(1, words)];
+                bits[depth] = result;
+            } else {
+                Arrays.fill(result, 0, words, 0L);
+            }
+
+            roll.reset(context);
+            for (int i = 0; i < checks.length; i++) {
+                if (checks[i].test(roll)) {
+                    result[i >>> 6] |= 1L << i;
+                }
+            }
+            depth++;
+            return result;
+        }
+
+        long[] current() {
+            return bits[depth - 1];
+        }
+
+        void exit() {
+            depth--;
+            // Bez referencji do kontekstu zakończonego losowania (świat, encje)
+            contexts[depth].reset(null);
+        }
+    }
+
+    /**
+     * Reguły, z których skompilowano potok (w kolejności rejestracji)
+     */
+    public List<IGlobalLootModifier> getRules() {
+        return rules;
+    }
+
+    /**
+     * Liczba etapów po sklejeniu (0 dla potoku wykonywanego po kolei)
+     */
+    public int getStageCount() {
+        return stages.length;
+    }
+
+    /**
+     * Czy potok jest sklejony (false = fallback na kolejne apply())
+     */
+    public boolean isFused() {
+        return sequential == null;
+    }
+
+    /**
+     * Czy reguły potoku mają warunki kontekstu (wynik zależy od losowania, nie tylko od tabeli)
+     */
+    public boolean isConditional() {
+        return conditions != null;
+    }
+
+    /**
+     * Etap potoku
+     */
+    public interface Stage {
+    }
+
+    /**
+     * Etap działający na pojedynczym stacku (remove, replace, multiply)
+     * Przekazuje 0..n stacków dalej przez {@link LootPipeline#push}
+     */
+    @FunctionalInterface
+    public interface StackStage extends Stage {
+        void accept(ItemStack stack, LootContext context, LootPipeline pipeline, int next, ObjectArrayList<ItemStack> out);
+    }
+
+    /**
+     * Etap dodający nowy przedmiot (add)
+     */
+    @FunctionalInterface
+    public interface SourceStage extends Stage {
+        /**
+         * @return nowy stack albo null, jeśli nic nie wypadło
+         */
+        @Nullable
+        ItemStack generate(LootContext context);
+    }
+
+    /**
+     * Etap źródłowy, który najpierw odrzuca cały dotychczasowy loot (clear, set_only)
+     */
+    @FunctionalInterface
+    public interface ResetStage extends SourceStage {
+    }
+}
@@ -0,0 +1,185 @@
+package pl.mikof.lootapi.glm;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.enchantment.Enchantment;
+import net.minecraft.world.item.enchantment.ItemEnchantments;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.biome.Biome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Warunki kontekstu reguły poza ID tabeli: wymiar, biom, narzędzie, zaklęcia narzędzia i typ zabójcy
+ *
+ * Każde pole to zbiór dozwolonych wartości (pusty = bez ograniczeń), pola łączą się przez AND.
+ * Tak jak tabele, warunki obsługuje indeks, a nie sam modifier: przy kompilacji zamieniają się
+ * w {@link Check} złożony tylko z ustawionych pól, a parametry kontekstu czyta raz na losowanie
+ * {@link RollContext} wspólny dla wszystkich reguł tabeli.
+ *
+ * @param enchantments zaklęcie → minimalny poziom na narzędziu (wszystkie wymagane)
+ */
+public record LootRuleCondition(Set<ResourceKey<Level>> dimensions, Set<ResourceKey<Biome>> biomes, Set<Item> tools,
+                                Map<ResourceKey<Enchantment>, Integer> enchantments, Set<EntityType<?>> killers) {
+    public static final LootRuleCondition ALWAYS = new LootRuleCondition(Set.of(), Set.of(), Set.of(), Map.of(), Set.of());
+
+    private static final Check PASS = roll -> true;
+
+    public LootRuleCondition {
+        dimensions = Set.copyOf(dimensions);
+        biomes = Set.copyOf(biomes);
+        tools = Set.copyOf(tools);
+        enchantments = Map.copyOf(enchantments);
+        killers = Set.copyOf(killers);
+    }
+
+    /**
+     * Czy warunek przepuszcza każde losowanie
+     */
+    public boolean isAlways() {
+        return dimensions.isEmpty() && biomes.isEmpty() && tools.isEmpty() && enchantments.isEmpty() && killers.isEmpty();
+    }
+
+    /**
+     * Kompiluje warunek do sprawdzenia na jednym losowaniu
+     * Pojedyncza wartość to porównanie referencji zamiast szukania w zbiorze, nieustawione pola nie kosztują nic
+     */
+    Check compile() {
+        List<Check> checks = new ArrayList<>(5);
+        // Najpierw najtańsze pola - biom wymaga odczytu ze świata
+        if (!dimensions.isEmpty()) {
+            if (dimensions.size() == 1) {
+                ResourceKey<Level> dimension = dimensions.iterator().next();
+                checks.add(roll -> roll.dimension() == dimension);
+            } else {
+                checks.add(roll -> dimensions.contains(roll.dimension()));
+            }
+        }
+        if (!killers.isEmpty()) {
+            if (killers.size() == 1) {
+                EntityType<?> killer = killers.iterator().next();
+                checks.add(roll -> roll.killerType() == killer);
+            } else {
+                checks.add(roll -> {
+                    // Niemodyfikowalne zbiory nie przyjmują null w contains()
+                    EntityType<?> killer = roll.killerType();
+                    return killer != null && killers.contains(killer);
+                });
+            }
+        }
+        if (!tools.isEmpty()) {
+            if (tools.size() == 1) {
+                Item tool = tools.iterator().next();
+                checks.add(roll -> roll.tool().is(tool));
+            } else {
+                checks.add(roll -> tools.contains(roll.tool().getItem()));
+            }
+        }
+        if (!enchantments.isEmpty()) {
+            checks.add(enchantmentCheck());
+        }
+        if (!biomes.isEmpty()) {
+            if (biomes.size() == 1) {
+                ResourceKey<Biome> biome = biomes.iterator().next();
+                checks.add(roll -> roll.biome() == biome);
+            } else {
+                checks.add(roll -> {
+                    ResourceKey<Biome> biome = roll.biome();
+                    return biome != null && biomes.contains(biome);
+                });
+            }
+        }
+
+        return switch (checks.size()) {
+            case 0 -> PASS;
+            case 1 -> checks.get(0);
+            case 2 -> {
+                Check first = checks.get(0);
+                Check second = checks.get(1);
+                yield roll -> first.test(roll) && second.test(roll);
+            }
+            default -> {
+                Check[] all = checks.toArray(new Check[0]);
+                yield roll -> {
+                    for (Check check : all) {
+                        if (!check.test(roll)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+        };
+    }
+
+    private Check enchantmentCheck() {
+        @SuppressWarnings("unchecked")
+        ResourceKey<Enchantment>[] keys = enchantments.keySet().toArray(new ResourceKey[0]);
+        int[] minLevels = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            minLevels[i] = enchantments.get(keys[i]);
+        }
+        return roll -> {
+            ItemEnchantments present = roll.toolEnchantments();
+            for (int i = 0; i < keys.length; i++) {
+                if (level(present, keys[i]) < minLevels[i]) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static int level(ItemEnchantments enchantments, ResourceKey<Enchantment> key) {
+        // Narzędzie ma zwykle kilka zaklęć - liniowo, bez wyszukiwania holdera w rejestrze
+        for (Object2IntMap.Entry<Holder<Enchantment>> entry : enchantments.entrySet()) {
+            if (entry.getKey().is(key)) {
+                return entry.getIntValue();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Zapis do snapshotu reguł - przedmioty jako numeryczne ID (rejestr przedmiotów jest w kluczu snapshotu)
+     */
+    public void write(FriendlyByteBuf buf) {
+        buf.writeCollection(dimensions, (b, key) -> b.writeResourceLocation(key.location()));
+        buf.writeCollection(biomes, (b, key) -> b.writeResourceLocation(key.location()));
+        buf.writeCollection(tools, (b, item) -> b.writeVarInt(BuiltInRegistries.ITEM.getId(item)));
+        buf.writeMap(enchantments, (b, key) -> b.writeResourceLocation(key.location()), FriendlyByteBuf::writeVarInt);
+        buf.writeCollection(killers, (b, type) -> b.writeResourceLocation(BuiltInRegistries.ENTITY_TYPE.getKey(type)));
+    }
+
+    /**
+     * Odczyt ze snapshotu reguł (nieznany typ moba = wyjątek, snapshot jest przebudowywany)
+     */
+    public static LootRuleCondition read(FriendlyByteBuf buf) {
+        List<ResourceKey<Level>> dimensions = buf.readList(b -> ResourceKey.create(Registries.DIMENSION, b.readResourceLocation()));
+        List<ResourceKey<Biome>> biomes = buf.readList(b -> ResourceKey.create(Registries.BIOME, b.readResourceLocation()));
+        List<Item> tools = buf.readList(b -> BuiltInRegistries.ITEM.byIdOrThrow(b.readVarInt()));
+        Map<ResourceKey<Enchantment>, Integer> enchantments = buf.readMap(
+                b -> ResourceKey.create(Registries.ENCHANTMENT, b.readResourceLocation()), FriendlyByteBuf::readVarInt);
+        List<EntityType<?>> killers = buf.readList(b -> BuiltInRegistries.ENTITY_TYPE.getOptional(b.readResourceLocation())
+                .orElseThrow(() -> new IllegalStateException("Unknown entity type in rule condition")));
+        return new LootRuleCondition(Set.copyOf(dimensions), Set.copyOf(biomes), Set.copyOf(tools), enchantments,
+                Set.copyOf(killers));
+    }
+
+    /**
+     * Skompilowany warunek - sprawdzany raz na losowanie, niezależnie od liczby reguł, które go mają
+     */
+    @FunctionalInterface
+    interface Check {
+        boolean test(RollContext roll);
+    }
+}
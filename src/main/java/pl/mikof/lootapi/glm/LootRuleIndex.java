@@ -0,0 +1,216 @@
+package pl.mikof.lootapi.glm;
+
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.neoforge.common.loot.IGlobalLootModifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indeks reguł: ID tabeli → skompilowany potok reguł tej tabeli
+ * Budowany raz przy finalizacji, odczytywany przez {@link DispatchModifier} przy każdym losowaniu
+ */
+public final class LootRuleIndex {
+    public static final LootRuleIndex EMPTY = new LootRuleIndex(Map.of(), Map.of(), LootPipeline.EMPTY);
+
+    private static volatile LootRuleIndex current = EMPTY;
+
+    private final Map<ResourceLocation, LootPipeline> byTable;
+    // Liczniki tabel z własnymi regułami - pobierane raz przy budowie, nie przy każdym losowaniu
+    private final Map<ResourceLocation, LootMetrics.Counters> metrics;
+    private final LootPipeline global;
+
+    private LootRuleIndex(Map<ResourceLocation, LootPipeline> byTable, Map<ResourceLocation, LootMetrics.Counters> metrics,
+                          LootPipeline global) {
+        this.byTable = byTable;
+        this.metrics = metrics;
+        this.global = global;
+    }
+
+    private LootRuleIndex(Map<ResourceLocation, LootPipeline> byTable, LootPipeline global) {
+        this(byTable, resolveMetrics(byTable.keySet()), global);
+    }
+
+    private static Map<ResourceLocation, LootMetrics.Counters> resolveMetrics(Set<ResourceLocation> tables) {
+        Map<ResourceLocation, LootMetrics.Counters> metrics = new HashMap<>(Math.max(16, tables.size() * 2));
+        for (ResourceLocation table : tables) {
+            metrics.put(table, LootMetrics.forTable(table));
+        }
+        return metrics;
+    }
+
+    /**
+     * Zwraca aktualnie aktywny indeks
+     */
+    public static LootRuleIndex get() {
+        return current;
+    }
+
+    /**
+     * Podmienia aktywny indeks (atomowo - losowania w toku widzą stary albo nowy)
+     */
+    public static void install(LootRuleIndex index) {
+        current = index == null ? EMPTY : index;
+    }
+
+    /**
+     * Zwraca potok dla tabeli - reguły globalne (bez tabel docelowych) są już wmieszane
+     */
+    public LootPipeline pipelineFor(ResourceLocation tableId) {
+        LootPipeline pipeline = byTable.get(tableId);
+        return pipeline != null ? pipeline : global;
+    }
+
+    /**
+     * Zwraca liczniki tabeli, której potok nie jest pusty
+     * Tabele z własnymi regułami mają liczniki z budowy indeksu, pozostałe (same reguły globalne) - z rejestru
+     */
+    public LootMetrics.Counters metricsFor(ResourceLocation tableId) {
+        LootMetrics.Counters counters = metrics.get(tableId);
+        return counters != null ? counters : LootMetrics.forTable(tableId);
+    }
+
+    /**
+     * Czy indeks nie zawiera żadnych reguł
+     */
+    public boolean isEmpty() {
+        return byTable.isEmpty() && global == LootPipeline.EMPTY;
+    }
+
+    /**
+     * Zwraca kopię indeksu z przebudowanymi potokami podanych tabel
+     * Potoki pozostałych tabel są współdzielone ze starym indeksem
+     *
+     * @param tables tabele do podmiany
+     * @param partial indeks zbudowany tylko z reguł tych tabel (brak tabeli = tabela nie ma już własnych reguł)
+     */
+    public LootRuleIndex update(Set<ResourceLocation> tables, LootRuleIndex partial) {
+        Map<ResourceLocation, LootPipeline> updated = new HashMap<>(byTable);
+        Map<ResourceLocation, LootMetrics.Counters> updatedMetrics = new HashMap<>(metrics);
+        for (ResourceLocation table : tables) {
+            LootPipeline pipeline = partial.byTable.get(table);
+            if (pipeline == null) {
+                updated.remove(table);
+                updatedMetrics.remove(table);
+            } else {
+                updated.put(table, pipeline);
+                updatedMetrics.put(table, partial.metrics.get(table));
+            }
+        }
+        return new LootRuleIndex(updated, updatedMetrics, global);
+    }
+
+    /**
+     * Potoki tabel z własnymi regułami
+     */
+    public Map<ResourceLocation, LootPipeline> getPipelines() {
+        return Collections.unmodifiableMap(byTable);
+    }
+
+    /**
+     * Potok tabel bez własnych reguł (same reguły globalne)
+     */
+    public LootPipeline getGlobalPipeline() {
+        return global;
+    }
+
+    /**
+     * Liczba tabel z własnymi regułami
+     */
+    public int getTableCount() {
+        return byTable.size();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder indeksu - reguły dodawane w kolejności rejestracji
+     */
+    public static final class Builder {
+        private final Map<ResourceLocation, List<Entry>> byTable = new HashMap<>();
+        private final List<Entry> global = new ArrayList<>();
+        private LootRuleOptimizer optimizer;
+
+        /**
+         * Reguła razem z jej warunkiem kontekstu
+         */
+        private record Entry(IGlobalLootModifier rule, LootRuleCondition condition) {
+        }
+
+        private Builder() {
+        }
+
+        /**
+         * Włącza optymalizację reguł każdej tabeli przy budowie
+         */
+        public Builder optimizeWith(LootRuleOptimizer optimizer) {
+            this.optimizer = optimizer;
+            return this;
+        }
+
+        /**
+         * Dodaje regułę dla podanych tabel (pusta lista = wszystkie tabele)
+         */
+        public Builder add(List<ResourceLocation> tables, IGlobalLootModifier rule) {
+            return add(tables, rule, LootRuleCondition.ALWAYS);
+        }
+
+        /**
+         * Dodaje regułę z warunkiem kontekstu dla podanych tabel (pusta lista = wszystkie tabele)
+         */
+        public Builder add(List<ResourceLocation> tables, IGlobalLootModifier rule, LootRuleCondition condition) {
+            Entry entry = new Entry(rule, condition);
+            if (tables.isEmpty()) {
+                // Reguła globalna trafia też do tabel, które już mają własne reguły
+                global.add(entry);
+                for (List<Entry> entries : byTable.values()) {
+                    entries.add(entry);
+                }
+                return this;
+            }
+            for (ResourceLocation table : new LinkedHashSet<>(tables)) {
+                // Nowa tabela dziedziczy wcześniej zarejestrowane reguły globalne
+                byTable.computeIfAbsent(table, t -> new ArrayList<>(global)).add(entry);
+            }
+            return this;
+        }
+
+        /**
+         * Kompiluje potok każdej tabeli
+         * Tabele z tą samą listą reguł (np. jedna reguła zbiorcza na setki tabel) dostają jeden wspólny potok
+         */
+        public LootRuleIndex build() {
+            Map<ResourceLocation, LootPipeline> compiled = new HashMap<>(Math.max(16, byTable.size() * 2));
+            // Modifiery nie nadpisują equals - klucz porównuje listy tych samych instancji (i równych warunków)
+            Map<List<Entry>, LootPipeline> shared = new HashMap<>();
+            for (Map.Entry<ResourceLocation, List<Entry>> entry : byTable.entrySet()) {
+                LootPipeline pipeline = shared.get(entry.getValue());
+                if (pipeline == null) {
+                    pipeline = compile(entry.getKey(), entry.getValue());
+                    shared.put(entry.getValue(), pipeline);
+                }
+                compiled.put(entry.getKey(), pipeline);
+            }
+            return new LootRuleIndex(compiled, compile(null, global));
+        }
+
+        private LootPipeline compile(ResourceLocation table, List<Entry> entries) {
+            List<IGlobalLootModifier> rules = entries.stream().map(Entry::rule).toList();
+            if (entries.stream().allMatch(entry -> entry.condition().isAlways())) {
+                return optimizer == null
+                        ? LootPipeline.compile(rules)
+                        : LootPipeline.compile(rules, optimizer.optimize(table, rules));
+            }
+
+            // Etapy z warunkami - optymalizator nie wie, które reguły wykonają się razem
+            return LootPipeline.compileConditional(rules, entries.stream().map(Entry::condition).toList());
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package pl.mikof.lootapi.glm;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import net.neoforged.neoforge.common.loot.IGlobalLootModifier;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.LoggerFactory;
+import pl.mikof.lootapi.util.ColoredLogger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optymalizacja reguł tabeli przy kompilacji indeksu - mniejszy zestaw o tym samym rozkładzie
+ *
+ * - reguły przed ostatnim clear / set_only są martwe (ich wynik i tak jest odrzucany),
+ * - multiply z mnożnikiem <= 1 i replace X → X nic nie robią,
+ * - całkowite mnożniki rozdzielone tylko przez remove/replace łączą się w iloczyn
+ *   (ułamkowe nie - floor i losowanie ułamka nie są łączne),
+ * - sąsiednie remove łączą się w jedno remove_items,
+ * - identyczne add o stałej ilości i szansie 1 łączą się w jeden stack, jeśli po nich
+ *   nie ma ułamkowego mnożnika (ten losuje osobno dla każdego stacka).
+ *
+ * Tabele z regułami spoza LootAPI albo z własnymi warunkami zostają bez zmian.
+ * Równoważność sprawdza {@link #verify} (dokładnie, przez {@link LootCalculator}).
+ */
+public final class LootRuleOptimizer {
+    private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("LootRuleOptimizer"));
+    // -Dlootapi.optimize=false wyłącza optymalizację (np. do porównań)
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("lootapi.optimize"));
+    private static final float MAX_MERGED_MULTIPLIER = 1 << 16;
+
+    private int rulesIn;
+    private int rulesOut;
+    private int dead;
+    private int noOps;
+    private int mergedMultipliers;
+    private int mergedRemovals;
+    private int mergedAdds;
+
+    /**
+     * Reguła razem z opisem jej etapu
+     */
+    private record Rule(IGlobalLootModifier modifier, LootCalculator.Stage stage) {
+    }
+
+    /**
+     * Zwraca równoważny, zoptymalizowany zestaw reguł tabeli
+     */
+    public List<IGlobalLootModifier> optimize(@Nullable ResourceLocation table, List<IGlobalLootModifier> rules) {
+        rulesIn += rules.size();
+        List<IGlobalLootModifier> result = ENABLED ? run(rules) : rules;
+        rulesOut += result.size();
+        if (result.size() < rules.size()) {
+            LOGGER.debug("Optimized {}: {} -> {} rules", table == null ? "global rules" : table, rules.size(), result.size());
+        }
+        return result;
+    }
+
+    private List<IGlobalLootModifier> run(List<IGlobalLootModifier> rules) {
+        List<Rule> described = new ArrayList<>(rules.size());
+        for (IGlobalLootModifier rule : rules) {
+            LootCalculator.Stage stage = rule instanceof FusibleModifier fusible ? fusible.analyticStage() : null;
+            if (stage == null) {
+                return rules;
+            }
+            described.add(new Rule(rule, stage));
+        }
+
+        described = removeDead(described);
+        described = removeNoOps(described);
+        described = mergeMultipliers(described);
+        described = mergeRemovals(described);
+        described = mergeAdds(described);
+
+        if (described.size() == rules.size()) {
+            return rules;
+        }
+        return described.stream().map(Rule::modifier).toList();
+    }
+
+    /**
+     * Wszystko przed ostatnim clear / set_only
+     */
+    private List<Rule> removeDead(List<Rule> rules) {
+        for (int i = rules.size() - 1; i > 0; i--) {
+            if (rules.get(i).stage() instanceof LootCalculator.Source source && source.reset()) {
+                dead += i;
+                return rules.subList(i, rules.size());
+            }
+        }
+        return rules;
+    }
+
+    private List<Rule> removeNoOps(List<Rule> rules) {
+        List<Rule> result = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            boolean noOp = switch (rule.stage()) {
+                case LootCalculator.Multiply multiply -> multiply.multiplier() <= 1.0f;
+                case LootCalculator.Replace replace -> replace.replacements().entrySet().stream()
+                        .allMatch(entry -> entry.getKey() == entry.getValue());
+                case LootCalculator.Remove remove -> remove.items().isEmpty();
+                case LootCalculator.Source source -> false;
+            };
+            if (noOp) {
+                noOps++;
+            } else {
+                result.add(rule);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Całkowite mnożniki bez etapu źródłowego ani ułamkowego mnożnika pomiędzy
+     */
+    private List<Rule> mergeMultipliers(List<Rule> rules) {
+        List<Rule> result = new ArrayList<>(rules.size());
+        int last = -1;
+        for (Rule rule : rules) {
+            if (rule.stage() instanceof LootCalculator.Multiply multiply) {
+                float multiplier = multiply.multiplier();
+                if (!isInteger(multiplier)) {
+                    last = -1;
+                } else if (last >= 0) {
+                    float product = ((LootCalculator.Multiply) result.get(last).stage()).multiplier() * multiplier;
+                    if (product <= MAX_MERGED_MULTIPLIER) {
+                        result.set(last, multiply(product));
+                        mergedMultipliers++;
+                        continue;
+                    }
+                    last = result.size();
+                } else {
+                    last = result.size();
+                }
+            } else if (rule.stage() instanceof LootCalculator.Source) {
+                // Przedmioty źródła dostają tylko późniejsze mnożniki
+                last = -1;
+            }
+            result.add(rule);
+        }
+        return result;
+    }
+
+    private List<Rule> mergeRemovals(List<Rule> rules) {
+        List<Rule> result = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            if (rule.stage() instanceof LootCalculator.Remove remove && !result.isEmpty()
+                    && result.getLast().stage() instanceof LootCalculator.Remove previous) {
+                Set<Item> items = new LinkedHashSet<>(previous.items());
+                items.addAll(remove.items());
+                RemoveItemsModifier merged = new RemoveItemsModifier(FusibleModifier.NO_CONDITIONS, List.copyOf(items));
+                result.set(result.size() - 1, new Rule(merged, merged.toAnalyticStage()));
+                mergedRemovals++;
+                continue;
+            }
+            result.add(rule);
+        }
+        return result;
+    }
+
+    /**
+     * Add o stałej ilości i szansie 1 - ten sam przedmiot bez etapu stackowego pomiędzy
+     */
+    private List<Rule> mergeAdds(List<Rule> rules) {
+        // Czy od danej pozycji do końca jest ułamkowy mnożnik
+        boolean[] fractionalAfter = new boolean[rules.size() + 1];
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            fractionalAfter[i] = fractionalAfter[i + 1]
+                    || rules.get(i).stage() instanceof LootCalculator.Multiply multiply && !isInteger(multiply.multiplier());
+        }
+
+        List<Rule> result = new ArrayList<>(rules.size());
+        // Przedmiot → pozycja w wyniku ostatniego stałego add od ostatniego etapu stackowego
+        Map<Item, Integer> fixedAdds = new IdentityHashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            LootCalculator.Outcome outcome = fixedAdd(rule);
+            if (outcome == null) {
+                if (!(rule.stage() instanceof LootCalculator.Source)) {
+                    fixedAdds.clear();
+                }
+                result.add(rule);
+                continue;
+            }
+
+            Integer previous = fixedAdds.get(outcome.item());
+            if (previous != null && !fractionalAfter[i]) {
+                LootCalculator.Outcome earlier = fixedAdd(result.get(previous));
+                int count = earlier.minCount() + outcome.minCount();
+                if (count <= outcome.item().getDefaultMaxStackSize()) {
+                    AddItemModifier merged = new AddItemModifier(FusibleModifier.NO_CONDITIONS, outcome.item(), count, count, 1.0f);
+                    result.set(previous, new Rule(merged, merged.toAnalyticStage()));
+                    mergedAdds++;
+                    continue;
+                }
+            }
+            fixedAdds.put(outcome.item(), result.size());
+            result.add(rule);
+        }
+        return result;
+    }
+
+    @Nullable
+    private static LootCalculator.Outcome fixedAdd(Rule rule) {
+        if (rule.modifier() instanceof AddItemModifier
+                && rule.stage() instanceof LootCalculator.Source source
+                && !source.reset() && source.chance() >= 1.0f && source.outcomes().size() == 1) {
+            LootCalculator.Outcome outcome = source.outcomes().getFirst();
+            return outcome.minCount() == outcome.maxCount() ? outcome : null;
+        }
+        return null;
+    }
+
+    private static Rule multiply(float multiplier) {
+        MultiplyDropsModifier modifier = new MultiplyDropsModifier(FusibleModifier.NO_CONDITIONS, multiplier);
+        return new Rule(modifier, modifier.toAnalyticStage());
+    }
+
+    private static boolean isInteger(float value) {
+        return value == (float) Math.rint(value);
+    }
+
+    /**
+     * Liczba reguł usuniętych we wszystkich tabelach
+     */
+    public int getRemovedCount() {
+        return rulesIn - rulesOut;
+    }
+
+    /**
+     * Podsumowanie do logu
+     */
+    public String summary() {
+        return rulesIn + " -> " + rulesOut + " table rules (" + dead + " dead before clear/set_only, "
+                + noOps + " no-op, " + mergedMultipliers + " multipliers merged, "
+                + mergedRemovals + " removals merged, " + mergedAdds + " adds merged)";
+    }
+
+    /**
+     * Sprawdza, czy zoptymalizowane reguły mają dokładnie ten sam rozkład co oryginalne
+     * @return null, jeśli rozkładu nie da się policzyć (reguły spoza LootAPI / z warunkami)
+     */
+    @Nullable
+    public static Boolean verify(List<IGlobalLootModifier> rules) {
+        LootCalculator.Analysis original = LootCalculator.analyze(rules);
+        if (!original.supported()) {
+            return null;
+        }
+        LootCalculator.Analysis optimized = LootCalculator.analyze(new LootRuleOptimizer().optimize(null, rules));
+        return equivalent(original, optimized);
+    }
+
+    private static boolean equivalent(LootCalculator.Analysis a, LootCalculator.Analysis b) {
+        if (!b.supported() || a.keepsGeneratedLoot() != b.keepsGeneratedLoot()
+                || !a.added().keySet().equals(b.added().keySet())
+                || !a.generated().keySet().equals(b.generated().keySet())) {
+            return false;
+        }
+        for (Map.Entry<Item, LootCalculator.Distribution> entry : a.added().entrySet()) {
+            if (!equivalent(entry.getValue(), b.added().get(entry.getKey()))) {
+                return false;
+            }
+        }
+        for (Map.Entry<Item, LootCalculator.Fate> entry : a.generated().entrySet()) {
+            if (!equivalent(entry.getValue(), b.generated().get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return a.otherItems() == null ? b.otherItems() == null
+                : b.otherItems() != null && equivalent(a.otherItems(), b.otherItems());
+    }
+
+    private static boolean equivalent(LootCalculator.Fate a, LootCalculator.Fate b) {
+        return a.item() == b.item() && equivalent(a.single(), b.single());
+    }
+
+    private static boolean equivalent(LootCalculator.Distribution a, LootCalculator.Distribution b) {
+        double[] p = a.probabilities();
+        double[] q = b.probabilities();
+        int length = Math.max(p.length, q.length);
+        double[] left = Arrays.copyOf(p, length);
+        double[] right = Arrays.copyOf(q, length);
+        for (int k = 0; k < length; k++) {
+            if (Math.abs(left[k] - right[k]) > 1e-9) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
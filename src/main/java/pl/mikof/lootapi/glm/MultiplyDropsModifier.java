@@ -3,7 +3,10 @@ package pl.mikof.lootapi.glm;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.MapCodec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.storage.loot.LootContext;
 import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
@@ -13,12 +16,15 @@ import org.jetbrains.annotations.NotNull;
 /**
  * Global Loot Modifier - mnoży ilość wszystkich dropów
  */
-public class MultiplyDropsModifier extends LootModifier {
+public class MultiplyDropsModifier extends FusibleModifier {
     public static final MapCodec<MultiplyDropsModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
             LootModifier.codecStart(inst).and(
                     Codec.FLOAT.fieldOf("multiplier").forGetter(m -> m.multiplier)
             ).apply(inst, MultiplyDropsModifier::new)
     );
+    public static final StreamCodec<ByteBuf, MultiplyDropsModifier> STREAM_CODEC = ByteBufCodecs.FLOAT.map(
+            multiplier -> new MultiplyDropsModifier(NO_CONDITIONS, multiplier), m -> m.multiplier
+    );
 
     private final float multiplier;
 
@@ -33,30 +39,58 @@ public class MultiplyDropsModifier extends LootModifier {
             return generatedLoot;
         }
 
-        ObjectArrayList<ItemStack> multipliedLoot = new ObjectArrayList<>();
-
-        for (ItemStack stack : generatedLoot) {
-            // Oblicz nową ilość
+        // W miejscu: stack dostaje nową ilość, dodatkowy item ląduje zaraz za nim
+        for (int i = 0; i < generatedLoot.size(); i++) {
+            ItemStack stack = generatedLoot.get(i);
+            // Oblicz nową ilość (mnożnik > 1 i ilość >= 1, więc pełna część jest zawsze > 0)
             float newAmount = stack.getCount() * multiplier;
             int baseCount = (int) newAmount;
             float fractional = newAmount - baseCount;
 
-            // Dodaj pełne stacki
-            if (baseCount > 0) {
-                ItemStack multipliedStack = stack.copy();
-                multipliedStack.setCount(baseCount);
-                multipliedLoot.add(multipliedStack);
-            }
+            stack.setCount(baseCount);
 
             // Dla części ułamkowej - losuj czy dodać dodatkowy item
             if (fractional > 0 && context.getRandom().nextFloat() < fractional) {
-                ItemStack extraStack = stack.copy();
-                extraStack.setCount(1);
-                multipliedLoot.add(extraStack);
+                generatedLoot.add(++i, stack.copyWithCount(1));
             }
         }
 
-        return multipliedLoot;
+        return generatedLoot;
+    }
+
+    @Override
+    protected LootPipeline.Stage toStage(LootMetrics.Counters metrics) {
+        if (multiplier <= 1.0f) {
+            // Tak jak doApply - mnożnik <= 1 nic nie zmienia
+            return (LootPipeline.StackStage) (stack, context, pipeline, next, out) -> {
+                metrics.invocations.increment();
+                pipeline.push(stack, next, context, out);
+            };
+        }
+        return (LootPipeline.StackStage) (stack, context, pipeline, next, out) -> {
+            metrics.invocations.increment();
+            metrics.hits.increment();
+            float newAmount = stack.getCount() * multiplier;
+            int baseCount = (int) newAmount;
+            float fractional = newAmount - baseCount;
+
+            // Kopia na dodatkowy item przed przekazaniem stacka dalej - kolejne etapy mogą go zmienić
+            ItemStack extra = fractional > 0 && context.getRandom().nextFloat() < fractional
+                    ? stack.copyWithCount(1)
+                    : null;
+
+            stack.setCount(baseCount);
+            pipeline.push(stack, next, context, out);
+            if (extra != null) {
+                metrics.stacksAdded.increment();
+                pipeline.push(extra, next, context, out);
+            }
+        };
+    }
+
+    @Override
+    protected LootCalculator.Stage toAnalyticStage() {
+        return new LootCalculator.Multiply(multiplier);
     }
 
     @Override
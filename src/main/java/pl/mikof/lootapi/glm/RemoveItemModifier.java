@@ -2,8 +2,10 @@ package pl.mikof.lootapi.glm;
 
 import com.mojang.serialization.MapCodec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.storage.loot.LootContext;
@@ -11,15 +13,20 @@ import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
 import net.neoforged.neoforge.common.loot.LootModifier;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Set;
+
 /**
  * Global Loot Modifier - usuwa określony przedmiot z dropu
  */
-public class RemoveItemModifier extends LootModifier {
+public class RemoveItemModifier extends FusibleModifier {
     public static final MapCodec<RemoveItemModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
             LootModifier.codecStart(inst).and(
                     BuiltInRegistries.ITEM.byNameCodec().fieldOf("item").forGetter(m -> m.item)
             ).apply(inst, RemoveItemModifier::new)
     );
+    public static final StreamCodec<ByteBuf, RemoveItemModifier> STREAM_CODEC = ITEM_STREAM_CODEC.map(
+            item -> new RemoveItemModifier(NO_CONDITIONS, item), m -> m.item
+    );
 
     private final Item item;
 
@@ -30,11 +37,36 @@ public class RemoveItemModifier extends LootModifier {
 
     @Override
     protected @NotNull ObjectArrayList<ItemStack> doApply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
-        // Usuń wszystkie ItemStacki z tym przedmiotem
-        generatedLoot.removeIf(stack -> stack.getItem() == item);
+        // Usuń wszystkie ItemStacki z tym przedmiotem - kompaktowanie w miejscu, bez lambdy i iteratora
+        int kept = 0;
+        for (int i = 0; i < generatedLoot.size(); i++) {
+            ItemStack stack = generatedLoot.get(i);
+            if (stack.getItem() != item) {
+                generatedLoot.set(kept++, stack);
+            }
+        }
+        generatedLoot.size(kept);
         return generatedLoot;
     }
 
+    @Override
+    protected LootPipeline.Stage toStage(LootMetrics.Counters metrics) {
+        return (LootPipeline.StackStage) (stack, context, pipeline, next, out) -> {
+            metrics.invocations.increment();
+            if (stack.getItem() != item) {
+                pipeline.push(stack, next, context, out);
+                return;
+            }
+            metrics.hits.increment();
+            metrics.stacksRemoved.increment();
+        };
+    }
+
+    @Override
+    protected LootCalculator.Stage toAnalyticStage() {
+        return new LootCalculator.Remove(Set.of(item));
+    }
+
     @Override
     public MapCodec<? extends RemoveItemModifier> codec() {
         return CODEC;
@@ -0,0 +1,79 @@
+package pl.mikof.lootapi.glm;
+
+import com.mojang.serialization.MapCodec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+import net.neoforged.neoforge.common.loot.LootModifier;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Global Loot Modifier - usuwa z dropu wszystkie przedmioty z podanego zbioru
+ * Jedno przejście po loocie, przynależność sprawdzana przez porównanie referencji (O(1) na stack)
+ */
+public class RemoveItemsModifier extends FusibleModifier {
+    public static final MapCodec<RemoveItemsModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
+            LootModifier.codecStart(inst).and(
+                    BuiltInRegistries.ITEM.byNameCodec().listOf().fieldOf("items").forGetter(m -> m.items)
+            ).apply(inst, RemoveItemsModifier::new)
+    );
+    public static final StreamCodec<ByteBuf, RemoveItemsModifier> STREAM_CODEC = ITEM_STREAM_CODEC
+            .apply(ByteBufCodecs.list())
+            .map(items -> new RemoveItemsModifier(NO_CONDITIONS, items), m -> m.items);
+
+    private final List<Item> items;
+    private final ReferenceOpenHashSet<Item> itemSet;
+
+    public RemoveItemsModifier(LootItemCondition[] conditions, List<Item> items) {
+        super(conditions);
+        this.items = List.copyOf(items);
+        this.itemSet = new ReferenceOpenHashSet<>(items);
+    }
+
+    @Override
+    protected @NotNull ObjectArrayList<ItemStack> doApply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
+        // Kompaktowanie w miejscu - zostają stacki spoza zbioru
+        int kept = 0;
+        for (int i = 0; i < generatedLoot.size(); i++) {
+            ItemStack stack = generatedLoot.get(i);
+            if (!itemSet.contains(stack.getItem())) {
+                generatedLoot.set(kept++, stack);
+            }
+        }
+        generatedLoot.size(kept);
+        return generatedLoot;
+    }
+
+    @Override
+    protected LootPipeline.Stage toStage(LootMetrics.Counters metrics) {
+        return (LootPipeline.StackStage) (stack, context, pipeline, next, out) -> {
+            metrics.invocations.increment();
+            if (!itemSet.contains(stack.getItem())) {
+                pipeline.push(stack, next, context, out);
+                return;
+            }
+            metrics.hits.increment();
+            metrics.stacksRemoved.increment();
+        };
+    }
+
+    @Override
+    protected LootCalculator.Stage toAnalyticStage() {
+        return new LootCalculator.Remove(itemSet);
+    }
+
+    @Override
+    public MapCodec<? extends RemoveItemsModifier> codec() {
+        return CODEC;
+    }
+}
@@ -2,8 +2,14 @@ package pl.mikof.lootapi.glm;
 
 import com.mojang.serialization.MapCodec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.core.component.DataComponentMap;
+import net.minecraft.core.component.DataComponentPatch;
+import net.minecraft.core.component.DataComponentType;
+import net.minecraft.core.component.DataComponents;
 import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.storage.loot.LootContext;
@@ -11,16 +17,32 @@ import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
 import net.neoforged.neoforge.common.loot.LootModifier;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Global Loot Modifier - zamienia jeden przedmiot na inny
  */
-public class ReplaceItemModifier extends LootModifier {
+public class ReplaceItemModifier extends FusibleModifier {
     public static final MapCodec<ReplaceItemModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
             LootModifier.codecStart(inst).and(inst.group(
                     BuiltInRegistries.ITEM.byNameCodec().fieldOf("old_item").forGetter(m -> m.oldItem),
                     BuiltInRegistries.ITEM.byNameCodec().fieldOf("new_item").forGetter(m -> m.newItem)
             )).apply(inst, ReplaceItemModifier::new)
     );
+    public static final StreamCodec<ByteBuf, ReplaceItemModifier> STREAM_CODEC = StreamCodec.composite(
+            ITEM_STREAM_CODEC, m -> m.oldItem,
+            ITEM_STREAM_CODEC, m -> m.newItem,
+            (oldItem, newItem) -> new ReplaceItemModifier(NO_CONDITIONS, oldItem, newItem)
+    );
+
+    // Komponenty, które przechodzą na każdy przedmiot
+    private static final Set<DataComponentType<?>> ITEM_AGNOSTIC = Set.of(
+            DataComponents.CUSTOM_NAME, DataComponents.LORE, DataComponents.ENCHANTMENTS, DataComponents.CUSTOM_DATA);
+    // Komponenty, które opisują sam przedmiot - zawsze z prototypu nowego przedmiotu, nawet jeśli go ma
+    private static final Set<DataComponentType<?>> ITEM_DEFINING = Set.of(
+            DataComponents.MAX_STACK_SIZE, DataComponents.MAX_DAMAGE, DataComponents.ITEM_NAME, DataComponents.RARITY,
+            DataComponents.FOOD, DataComponents.TOOL, DataComponents.ATTRIBUTE_MODIFIERS);
 
     private final Item oldItem;
     private final Item newItem;
@@ -37,14 +59,51 @@ public class ReplaceItemModifier extends LootModifier {
         for (int i = 0; i < generatedLoot.size(); i++) {
             ItemStack stack = generatedLoot.get(i);
             if (stack.getItem() == oldItem) {
-                // Zachowaj ilość z oryginalnego stacka
-                ItemStack newStack = new ItemStack(newItem, stack.getCount());
-                generatedLoot.set(i, newStack);
+                // Zachowaj ilość i komponenty z oryginalnego stacka
+                generatedLoot.set(i, transmute(stack, newItem));
             }
         }
         return generatedLoot;
     }
 
+    @Override
+    protected LootPipeline.Stage toStage(LootMetrics.Counters metrics) {
+        return (LootPipeline.StackStage) (stack, context, pipeline, next, out) -> {
+            metrics.invocations.increment();
+            if (stack.getItem() == oldItem) {
+                metrics.hits.increment();
+                stack = transmute(stack, newItem);
+            }
+            pipeline.push(stack, next, context, out);
+        };
+    }
+
+    /**
+     * Tworzy stack nowego przedmiotu z ilością i komponentami starego, które nowy przedmiot obsługuje:
+     * niezależnymi od przedmiotu (nazwa, lore, enchanty, własne dane) i tymi, które ma jego prototyp.
+     * Komponenty definiujące przedmiot (rozmiar stacka, wytrzymałość, jedzenie, narzędzie, atrybuty...)
+     * zostają z prototypu nowego przedmiotu, a uszkodzenie jest ograniczane do jego wytrzymałości.
+     */
+    static ItemStack transmute(ItemStack stack, Item newItem) {
+        ItemStack result = new ItemStack(newItem, stack.getCount());
+        DataComponentPatch patch = stack.getComponentsPatch();
+        if (!patch.isEmpty()) {
+            DataComponentMap prototype = newItem.components();
+            result.applyComponents(patch.forget(type -> !ITEM_AGNOSTIC.contains(type)
+                    && (ITEM_DEFINING.contains(type) || !prototype.has(type))));
+            if (result.isDamageableItem() && result.getDamageValue() >= result.getMaxDamage()) {
+                // Uszkodzenie ponad wytrzymałość nowego przedmiotu - zostaje ostatni punkt
+                result.setDamageValue(result.getMaxDamage() - 1);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected LootCalculator.Stage toAnalyticStage() {
+        return new LootCalculator.Replace(Map.of(oldItem, newItem));
+    }
+
     @Override
     public MapCodec<? extends ReplaceItemModifier> codec() {
         return CODEC;
@@ -0,0 +1,77 @@
+package pl.mikof.lootapi.glm;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.MapCodec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+import net.neoforged.neoforge.common.loot.LootModifier;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Global Loot Modifier - zamienia wiele przedmiotów naraz według mapy stary → nowy
+ * Jedno przejście po loocie; każdy stack jest zamieniany najwyżej raz (według swojego pierwotnego przedmiotu)
+ */
+public class ReplaceItemsModifier extends FusibleModifier {
+    public static final MapCodec<ReplaceItemsModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
+            LootModifier.codecStart(inst).and(
+                    Codec.unboundedMap(BuiltInRegistries.ITEM.byNameCodec(), BuiltInRegistries.ITEM.byNameCodec())
+                            .fieldOf("replacements").forGetter(m -> m.replacements)
+            ).apply(inst, ReplaceItemsModifier::new)
+    );
+    public static final StreamCodec<ByteBuf, ReplaceItemsModifier> STREAM_CODEC =
+            ByteBufCodecs.<ByteBuf, Item, Item, Map<Item, Item>>map(Reference2ReferenceOpenHashMap::new, ITEM_STREAM_CODEC, ITEM_STREAM_CODEC)
+                    .map(replacements -> new ReplaceItemsModifier(NO_CONDITIONS, replacements), m -> m.replacements);
+
+    private final Reference2ReferenceOpenHashMap<Item, Item> replacements;
+
+    public ReplaceItemsModifier(LootItemCondition[] conditions, Map<Item, Item> replacements) {
+        super(conditions);
+        this.replacements = new Reference2ReferenceOpenHashMap<>(replacements);
+    }
+
+    @Override
+    protected @NotNull ObjectArrayList<ItemStack> doApply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
+        for (int i = 0; i < generatedLoot.size(); i++) {
+            ItemStack stack = generatedLoot.get(i);
+            Item newItem = replacements.get(stack.getItem());
+            if (newItem != null) {
+                generatedLoot.set(i, ReplaceItemModifier.transmute(stack, newItem));
+            }
+        }
+        return generatedLoot;
+    }
+
+    @Override
+    protected LootPipeline.Stage toStage(LootMetrics.Counters metrics) {
+        return (LootPipeline.StackStage) (stack, context, pipeline, next, out) -> {
+            metrics.invocations.increment();
+            Item newItem = replacements.get(stack.getItem());
+            if (newItem != null) {
+                metrics.hits.increment();
+                stack = ReplaceItemModifier.transmute(stack, newItem);
+            }
+            pipeline.push(stack, next, context, out);
+        };
+    }
+
+    @Override
+    protected LootCalculator.Stage toAnalyticStage() {
+        return new LootCalculator.Replace(replacements);
+    }
+
+    @Override
+    public MapCodec<? extends ReplaceItemsModifier> codec() {
+        return CODEC;
+    }
+}
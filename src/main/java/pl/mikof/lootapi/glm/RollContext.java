@@ -0,0 +1,106 @@
+package pl.mikof.lootapi.glm;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.enchantment.ItemEnchantments;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParams;
+import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parametry kontekstu jednego losowania, czytane leniwie i najwyżej raz
+ *
+ * Ustawiany przez potok z warunkami ({@link LootPipeline}) na początku losowania i przekazywany
+ * do wszystkich skompilowanych warunków tabeli - kolejna reguła z tym samym polem nie sięga
+ * już do {@link LootContext} ani do świata. Jeden obiekt na wątek (i poziom zagnieżdżenia),
+ * używany ponownie w kolejnych losowaniach.
+ */
+final class RollContext {
+    private LootContext context;
+
+    private ResourceKey<Level> dimension;
+    private ResourceKey<Biome> biome;
+    private boolean biomeRead;
+    private ItemStack tool;
+    private ItemEnchantments toolEnchantments;
+    private EntityType<?> killerType;
+    private boolean killerRead;
+
+    /**
+     * Przestawia kontekst na nowe losowanie (null = zwolnienie po losowaniu)
+     */
+    void reset(LootContext context) {
+        this.context = context;
+        dimension = null;
+        biome = null;
+        biomeRead = false;
+        tool = null;
+        toolEnchantments = null;
+        killerType = null;
+        killerRead = false;
+    }
+
+    ResourceKey<Level> dimension() {
+        if (dimension == null) {
+            dimension = context.getLevel().dimension();
+        }
+        return dimension;
+    }
+
+    /**
+     * Biom w miejscu losowania (null = kontekst bez pozycji)
+     */
+    @Nullable
+    ResourceKey<Biome> biome() {
+        if (!biomeRead) {
+            biomeRead = true;
+            Vec3 origin = context.getParamOrNull(LootContextParams.ORIGIN);
+            if (origin != null) {
+                biome = context.getLevel().getBiome(BlockPos.containing(origin)).unwrapKey().orElse(null);
+            }
+        }
+        return biome;
+    }
+
+    /**
+     * Narzędzie: użyte do zniszczenia bloku / łowienia albo trzymane przez zabójcę moba (pusty stack = brak)
+     */
+    ItemStack tool() {
+        if (tool == null) {
+            ItemStack used = context.getParamOrNull(LootContextParams.TOOL);
+            if (used == null && context.getParamOrNull(LootContextParams.ATTACKING_ENTITY) instanceof LivingEntity attacker) {
+                used = attacker.getMainHandItem();
+            }
+            tool = used == null ? ItemStack.EMPTY : used;
+        }
+        return tool;
+    }
+
+    ItemEnchantments toolEnchantments() {
+        if (toolEnchantments == null) {
+            toolEnchantments = tool().getOrDefault(DataComponents.ENCHANTMENTS, ItemEnchantments.EMPTY);
+        }
+        return toolEnchantments;
+    }
+
+    /**
+     * Typ zabójcy moba (null = nie ma zabójcy albo losowanie nie dotyczy moba)
+     */
+    @Nullable
+    EntityType<?> killerType() {
+        if (!killerRead) {
+            killerRead = true;
+            Entity killer = context.getParamOrNull(LootContextParams.ATTACKING_ENTITY);
+            killerType = killer == null ? null : killer.getType();
+        }
+        return killerType;
+    }
+}
@@ -3,8 +3,11 @@ package pl.mikof.lootapi.glm;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.MapCodec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.storage.loot.LootContext;
@@ -12,10 +15,12 @@ import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
 import net.neoforged.neoforge.common.loot.LootModifier;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
  * Global Loot Modifier - czyści tabelę i ustawia tylko jeden przedmiot jako drop
  */
-public class SetOnlyDropModifier extends LootModifier {
+public class SetOnlyDropModifier extends FusibleModifier {
     public static final MapCodec<SetOnlyDropModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
             LootModifier.codecStart(inst).and(inst.group(
                     BuiltInRegistries.ITEM.byNameCodec().fieldOf("item").forGetter(m -> m.item),
@@ -23,6 +28,12 @@ public class SetOnlyDropModifier extends LootModifier {
                     Codec.INT.fieldOf("max_count").forGetter(m -> m.maxCount)
             )).apply(inst, SetOnlyDropModifier::new)
     );
+    public static final StreamCodec<ByteBuf, SetOnlyDropModifier> STREAM_CODEC = StreamCodec.composite(
+            ITEM_STREAM_CODEC, m -> m.item,
+            ByteBufCodecs.VAR_INT, m -> m.minCount,
+            ByteBufCodecs.VAR_INT, m -> m.maxCount,
+            (item, min, max) -> new SetOnlyDropModifier(NO_CONDITIONS, item, min, max)
+    );
 
     private final Item item;
     private final int minCount;
@@ -38,18 +49,39 @@ public class SetOnlyDropModifier extends LootModifier {
     @Override
     protected @NotNull ObjectArrayList<ItemStack> doApply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
         // Wyczyść wszystko i dodaj tylko nasz przedmiot
-        ObjectArrayList<ItemStack> newLoot = new ObjectArrayList<>();
+        generatedLoot.clear();
+        generatedLoot.add(roll(context));
+        return generatedLoot;
+    }
+
+    @Override
+    protected LootPipeline.Stage toStage(LootMetrics.Counters metrics) {
+        // Odrzucone stacki liczy potok (etap nie widzi wygenerowanego lootu)
+        return (LootPipeline.ResetStage) context -> {
+            metrics.invocations.increment();
+            metrics.hits.increment();
+            metrics.stacksAdded.increment();
+            return roll(context);
+        };
+    }
 
+    @Override
+    protected LootCalculator.Stage toAnalyticStage() {
+        return new LootCalculator.Source(true, 1.0f,
+                List.of(new LootCalculator.Outcome(item, 1.0, minCount, Math.max(minCount, maxCount))));
+    }
+
+    /**
+     * Losuje jedyny drop
+     */
+    private ItemStack roll(LootContext context) {
         // Oblicz ilość (losowa między min a max)
         int count = minCount;
         if (maxCount > minCount) {
             count = minCount + context.getRandom().nextInt(maxCount - minCount + 1);
         }
 
-        ItemStack stack = new ItemStack(item, count);
-        newLoot.add(stack);
-
-        return newLoot;
+        return new ItemStack(item, count);
     }
 
     @Override
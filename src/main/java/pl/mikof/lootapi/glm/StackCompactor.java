@@ -0,0 +1,100 @@
+package pl.mikof.lootapi.glm;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.item.ItemStack;
+import org.slf4j.LoggerFactory;
+import pl.mikof.lootapi.util.ColoredLogger;
+
+/**
+ * Końcowy krok potoku: scala stacki tego samego przedmiotu z tymi samymi komponentami
+ * i dzieli je dokładnie na maksymalny rozmiar stacka
+ *
+ * Każdy stack to osobny ItemEntity w świecie - po multiply (dodatkowy stack z części ułamkowej,
+ * ilości ponad 64) i add (duplikaty stacków z tabeli) wynik ma najmniej stacków przy tej samej
+ * łącznej liczbie przedmiotów. Kolejność pierwszych wystąpień zostaje zachowana.
+ *
+ * Łączna liczba przedmiotów nigdy się nie zmienia. Podział jednego wywołania dodaje najwyżej
+ * {@code lootapi.compactStacks.maxSplitStacks} stacków - reszta (np. po ogromnym mnożniku) zostaje
+ * w jednym stacku ponad maksymalny rozmiar, tak jak bez scalania, zamiast tworzyć tysiące encji.
+ */
+public final class StackCompactor {
+    private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("StackCompactor"));
+
+    // -Dlootapi.compactStacks=false wyłącza scalanie (wynik jak przy kolejnych doApply)
+    static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("lootapi.compactStacks"));
+    // Limit stacków dodanych przez podział w jednym wywołaniu
+    private static final int MAX_SPLIT_STACKS = Math.clamp(Integer.getInteger("lootapi.compactStacks.maxSplitStacks", 256), 1, 1_000_000);
+
+    // Pierwsze przekroczenie limitu jako ostrzeżenie, kolejne tylko w debug
+    private static volatile boolean capReported;
+
+    private StackCompactor() {
+    }
+
+    /**
+     * Scala i dzieli stacki w miejscu (nic nie robi przy -Dlootapi.compactStacks=false)
+     * Loot ma zwykle kilka stacków, więc liniowe szukanie jest tańsze niż mapa
+     */
+    public static void compact(ObjectArrayList<ItemStack> stacks) {
+        int size = stacks.size();
+        if (!ENABLED || size == 0) {
+            return;
+        }
+
+        // Scalanie: stacki zostają w miejscu pierwszego wystąpienia przedmiotu
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = stacks.get(i);
+            if (stack.isEmpty()) {
+                continue;
+            }
+            ItemStack target = stack.isStackable() ? findMergeTarget(stacks, kept, stack) : null;
+            // Suma ponad Integer.MAX_VALUE - stack zostaje osobno zamiast obcinać ilość
+            if (target != null && (long) target.getCount() + stack.getCount() <= Integer.MAX_VALUE) {
+                target.grow(stack.getCount());
+            } else {
+                stacks.set(kept++, stack);
+            }
+        }
+        stacks.size(kept);
+
+        // Podział: pełne stacki ponad maksimum trafiają na koniec listy
+        int budget = MAX_SPLIT_STACKS;
+        for (int i = 0; i < kept; i++) {
+            ItemStack stack = stacks.get(i);
+            int max = stack.getMaxStackSize();
+            int extra = (stack.getCount() - 1) / max;
+            if (extra > budget) {
+                // Limit wyczerpany - reszta zostaje w stacku źródłowym (ponad maksymalny rozmiar)
+                extra = budget;
+                reportCap(stack, stack.getCount() - extra * max);
+            }
+            budget -= extra;
+            for (int j = 0; j < extra; j++) {
+                stacks.add(stack.split(max));
+            }
+        }
+    }
+
+    private static void reportCap(ItemStack stack, int remaining) {
+        String item = BuiltInRegistries.ITEM.getKey(stack.getItem()).toString();
+        if (!capReported) {
+            capReported = true;
+            LOGGER.warn("Loot roll exceeded {} split stacks, left {} x {} in one oversized stack (raise -Dlootapi.compactStacks.maxSplitStacks if intended)",
+                    MAX_SPLIT_STACKS, remaining, item);
+        } else {
+            LOGGER.debug("Loot roll exceeded {} split stacks, left {} x {} in one oversized stack", MAX_SPLIT_STACKS, remaining, item);
+        }
+    }
+
+    private static ItemStack findMergeTarget(ObjectArrayList<ItemStack> stacks, int kept, ItemStack stack) {
+        for (int j = 0; j < kept; j++) {
+            ItemStack candidate = stacks.get(j);
+            if (ItemStack.isSameItemSameComponents(candidate, stack)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
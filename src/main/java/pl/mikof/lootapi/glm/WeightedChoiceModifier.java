@@ -0,0 +1,181 @@
+package pl.mikof.lootapi.glm;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.MapCodec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.util.ExtraCodecs;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+import net.neoforged.neoforge.common.loot.LootModifier;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Global Loot Modifier - dodaje jeden przedmiot wylosowany z listy według wag
+ *
+ * Tablica aliasów (metoda Walkera) jest liczona raz w konstruktorze, więc losowanie
+ * kosztuje O(1) niezależnie od liczby wpisów: jeden indeks + jedno porównanie.
+ */
+public class WeightedChoiceModifier extends FusibleModifier {
+    /**
+     * Wpis: przedmiot, waga i zakres ilości
+     */
+    public record Entry(Item item, float weight, int minCount, int maxCount) {
+        public static final Codec<Entry> CODEC = RecordCodecBuilder.create(inst -> inst.group(
+                BuiltInRegistries.ITEM.byNameCodec().fieldOf("item").forGetter(Entry::item),
+                ExtraCodecs.POSITIVE_FLOAT.fieldOf("weight").forGetter(Entry::weight),
+                Codec.INT.optionalFieldOf("min_count", 1).forGetter(Entry::minCount),
+                Codec.INT.optionalFieldOf("max_count", 1).forGetter(Entry::maxCount)
+        ).apply(inst, Entry::new));
+        public static final StreamCodec<ByteBuf, Entry> STREAM_CODEC = StreamCodec.composite(
+                ITEM_STREAM_CODEC, Entry::item,
+                ByteBufCodecs.FLOAT, Entry::weight,
+                ByteBufCodecs.VAR_INT, Entry::minCount,
+                ByteBufCodecs.VAR_INT, Entry::maxCount,
+                Entry::new
+        );
+    }
+
+    public static final MapCodec<WeightedChoiceModifier> CODEC = RecordCodecBuilder.mapCodec(inst ->
+            LootModifier.codecStart(inst).and(inst.group(
+                    ExtraCodecs.nonEmptyList(Entry.CODEC.listOf()).fieldOf("entries").forGetter(m -> m.entries),
+                    Codec.FLOAT.optionalFieldOf("chance", 1.0f).forGetter(m -> m.chance)
+            )).apply(inst, WeightedChoiceModifier::new)
+    );
+    public static final StreamCodec<ByteBuf, WeightedChoiceModifier> STREAM_CODEC = StreamCodec.composite(
+            Entry.STREAM_CODEC.apply(ByteBufCodecs.list()), m -> m.entries,
+            ByteBufCodecs.FLOAT, m -> m.chance,
+            (entries, chance) -> new WeightedChoiceModifier(NO_CONDITIONS, entries, chance)
+    );
+
+    private final List<Entry> entries;
+    private final float chance;
+    // Tablica aliasów: wpis i wygrywa z prawdopodobieństwem probability[i], w przeciwnym razie alias[i]
+    private final float[] probability;
+    private final int[] alias;
+
+    public WeightedChoiceModifier(LootItemCondition[] conditions, List<Entry> entries, float chance) {
+        super(conditions);
+        this.entries = List.copyOf(entries);
+        this.chance = chance;
+        this.probability = new float[entries.size()];
+        this.alias = new int[entries.size()];
+        buildAliasTable();
+    }
+
+    /**
+     * Metoda Vose: wagi skalowane do średniej 1, nadmiar dużych wpisów dopełnia małe
+     */
+    private void buildAliasTable() {
+        int n = entries.size();
+        double total = 0;
+        for (Entry entry : entries) {
+            total += entry.weight();
+        }
+
+        double[] scaled = new double[n];
+        IntArrayList small = new IntArrayList();
+        IntArrayList large = new IntArrayList();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = entries.get(i).weight() * n / total;
+            (scaled[i] < 1.0 ? small : large).add(i);
+        }
+
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.popInt();
+            int more = large.popInt();
+            probability[less] = (float) scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            (scaled[more] < 1.0 ? small : large).add(more);
+        }
+        // Pozostałe (także przez błędy zaokrągleń) wygrywają zawsze
+        while (!large.isEmpty()) {
+            int index = large.popInt();
+            probability[index] = 1.0f;
+            alias[index] = index;
+        }
+        while (!small.isEmpty()) {
+            int index = small.popInt();
+            probability[index] = 1.0f;
+            alias[index] = index;
+        }
+    }
+
+    @Override
+    protected @NotNull ObjectArrayList<ItemStack> doApply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
+        ItemStack stack = roll(context);
+        if (stack != null) {
+            generatedLoot.add(stack);
+        }
+        return generatedLoot;
+    }
+
+    @Override
+    protected LootPipeline.Stage toStage(LootMetrics.Counters metrics) {
+        return (LootPipeline.SourceStage) context -> {
+            metrics.invocations.increment();
+            ItemStack stack = roll(context);
+            if (stack != null) {
+                metrics.hits.increment();
+                metrics.stacksAdded.increment();
+            }
+            return stack;
+        };
+    }
+
+    @Override
+    protected LootCalculator.Stage toAnalyticStage() {
+        double total = 0;
+        for (Entry entry : entries) {
+            total += entry.weight();
+        }
+        List<LootCalculator.Outcome> outcomes = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            outcomes.add(new LootCalculator.Outcome(entry.item(), entry.weight() / total,
+                    entry.minCount(), Math.max(entry.minCount(), entry.maxCount())));
+        }
+        return new LootCalculator.Source(false, Math.clamp(chance, 0.0f, 1.0f), outcomes);
+    }
+
+    /**
+     * Losuje stack (null = szansa nie wypadła)
+     */
+    private ItemStack roll(LootContext context) {
+        RandomSource random = context.getRandom();
+        if (chance < 1.0f && random.nextFloat() > chance) {
+            return null;
+        }
+
+        Entry entry = entries.get(pick(random));
+        int count = entry.minCount();
+        if (entry.maxCount() > entry.minCount()) {
+            count += random.nextInt(entry.maxCount() - entry.minCount() + 1);
+        }
+        return new ItemStack(entry.item(), count);
+    }
+
+    /**
+     * Losowanie indeksu wpisu w O(1)
+     */
+    int pick(RandomSource random) {
+        int index = random.nextInt(probability.length);
+        return random.nextFloat() < probability[index] ? index : alias[index];
+    }
+
+    @Override
+    public MapCodec<? extends WeightedChoiceModifier> codec() {
+        return CODEC;
+    }
+}
@@ -0,0 +1,150 @@
+package pl.mikof.lootapi.simulation;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import net.neoforged.fml.loading.FMLPaths;
+import pl.mikof.lootapi.LootAPI;
+import pl.mikof.lootapi.glm.LootCalculator;
+import pl.mikof.lootapi.glm.LootPipeline;
+import pl.mikof.lootapi.glm.LootRuleIndex;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Dokładne rozkłady dla wszystkich tabel z aktywnego indeksu reguł ({@link LootCalculator})
+ *
+ * Raport JSON (lootapi/reports/analysis.json):
+ * - "tables": ID tabeli → analiza jej potoku, "global": tabele bez własnych reguł
+ * - "added": przedmiot → rozkład łącznej ilości dodanej przez reguły na jedno losowanie
+ * - "generated": przedmiot tabeli → przedmiot wynikowy ("becomes", null = usunięty) i rozkład dla stacka 1 szt.
+ * - "other_items": to samo dla przedmiotów tabeli, których nie dotyczy żadne remove/replace
+ * Rozkład: mean, variance, p50, p90, p99, max, drop_rate i "pmf" (pmf[k] = P(ilość = k))
+ */
+public record LootAnalysisReport(Map<ResourceLocation, LootCalculator.Analysis> tables,
+                                 LootCalculator.Analysis global, long elapsedNanos) {
+    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+
+    /**
+     * Analizuje wszystkie tabele aktywnego indeksu
+     */
+    public static LootAnalysisReport analyzeAll() {
+        long start = System.nanoTime();
+        LootRuleIndex index = LootRuleIndex.get();
+        Map<ResourceLocation, LootCalculator.Analysis> tables = new LinkedHashMap<>();
+        index.getPipelines().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.comparing(ResourceLocation::toString)))
+                .forEach(entry -> tables.put(entry.getKey(), LootCalculator.analyze(entry.getValue())));
+        LootCalculator.Analysis global = LootCalculator.analyze(index.getGlobalPipeline());
+        return new LootAnalysisReport(tables, global, System.nanoTime() - start);
+    }
+
+    /**
+     * Analizuje jedną tabelę (tabela bez własnych reguł dostaje reguły globalne)
+     */
+    public static LootCalculator.Analysis analyze(ResourceLocation tableId) {
+        LootPipeline pipeline = LootRuleIndex.get().pipelineFor(tableId);
+        return LootCalculator.analyze(pipeline);
+    }
+
+    /**
+     * Liczba tabel, których reguł nie da się policzyć analitycznie
+     */
+    public long unsupportedCount() {
+        return tables.values().stream().filter(analysis -> !analysis.supported()).count();
+    }
+
+    /**
+     * Domyślna ścieżka raportu
+     */
+    public static Path defaultPath() {
+        return FMLPaths.GAMEDIR.get().resolve(LootAPI.MOD_ID).resolve("reports").resolve("analysis.json");
+    }
+
+    /**
+     * Zapisuje raport jako JSON
+     */
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, GSON.toJson(toJson()), StandardCharsets.UTF_8);
+    }
+
+    public JsonObject toJson() {
+        JsonObject root = new JsonObject();
+        root.addProperty("version", LootAPI.VERSION);
+        root.addProperty("elapsed_ms", elapsedNanos / 1_000_000.0);
+        JsonObject tableObjects = new JsonObject();
+        tables.forEach((table, analysis) -> tableObjects.add(table.toString(), toJson(analysis)));
+        root.add("tables", tableObjects);
+        root.add("global", toJson(global));
+        return root;
+    }
+
+    public static JsonObject toJson(LootCalculator.Analysis analysis) {
+        JsonObject object = new JsonObject();
+        object.addProperty("rules", analysis.ruleCount());
+        object.addProperty("supported", analysis.supported());
+        if (!analysis.supported()) {
+            return object;
+        }
+        object.addProperty("keeps_generated_loot", analysis.keepsGeneratedLoot());
+
+        JsonObject added = new JsonObject();
+        analysis.added().forEach((item, distribution) -> added.add(itemId(item), toJson(distribution)));
+        object.add("added", added);
+
+        JsonObject generated = new JsonObject();
+        analysis.generated().forEach((item, fate) -> generated.add(itemId(item), toJson(fate)));
+        object.add("generated", generated);
+
+        if (analysis.otherItems() != null) {
+            JsonObject other = new JsonObject();
+            other.addProperty("mean_factor", analysis.otherItems().meanFactor());
+            other.add("single", toJson(analysis.otherItems().single()));
+            object.add("other_items", other);
+        }
+        return object;
+    }
+
+    private static JsonObject toJson(LootCalculator.Fate fate) {
+        JsonObject object = new JsonObject();
+        object.add("becomes", fate.item() == null ? JsonNull.INSTANCE : new JsonPrimitive(itemId(fate.item())));
+        object.addProperty("mean_factor", fate.meanFactor());
+        object.add("single", toJson(fate.single()));
+        return object;
+    }
+
+    private static JsonObject toJson(LootCalculator.Distribution distribution) {
+        JsonObject object = new JsonObject();
+        object.addProperty("mean", distribution.mean());
+        object.addProperty("variance", distribution.variance());
+        object.addProperty("p50", distribution.percentile(0.50));
+        object.addProperty("p90", distribution.percentile(0.90));
+        object.addProperty("p99", distribution.percentile(0.99));
+        object.addProperty("max", distribution.max());
+        object.addProperty("drop_rate", distribution.dropRate());
+        JsonArray pmf = new JsonArray();
+        double[] probabilities = distribution.probabilities();
+        for (int k = 0; k <= distribution.max(); k++) {
+            pmf.add(probabilities[k]);
+        }
+        object.add("pmf", pmf);
+        return object;
+    }
+
+    private static String itemId(Item item) {
+        return BuiltInRegistries.ITEM.getKey(item).toString();
+    }
+}
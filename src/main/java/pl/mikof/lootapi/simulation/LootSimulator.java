@@ -0,0 +1,258 @@
+package pl.mikof.lootapi.simulation;
+
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.levelgen.PositionalRandomFactory;
+import net.minecraft.world.level.levelgen.XoroshiroRandomSource;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.LootParams;
+import net.minecraft.world.level.storage.loot.LootTable;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
+import org.slf4j.LoggerFactory;
+import pl.mikof.lootapi.glm.LootPipeline;
+import pl.mikof.lootapi.glm.LootRuleIndex;
+import pl.mikof.lootapi.util.ColoredLogger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Symulator Monte Carlo: losuje tabelę razem z potokiem reguł LootAPI N razy
+ *
+ * Losowania są dzielone na porcje po {@link #CHUNK_SIZE} i rozkładane na osobną pulę fork-join.
+ * Każda porcja ma własny strumień losowy wyprowadzony z ziarna i numeru porcji, więc wynik
+ * zależy tylko od ziarna - nie od liczby wątków ani kolejności wykonania.
+ *
+ * Kontekst nie zawiera gracza, pozycji ani narzędzia - symulacja działa bez graczy
+ * i nie dotyka świata (np. mapy skarbów nie szukają struktur). Warunki wymagające tych
+ * parametrów są traktowane jako niespełnione.
+ */
+public final class LootSimulator {
+    private static final ColoredLogger LOGGER = new ColoredLogger(LoggerFactory.getLogger("LootSimulator"));
+
+    public static final long DEFAULT_ROLLS = 1_000_000;
+    // Losowania na porcję - jednostka podziału pracy i strumienia losowego
+    private static final int CHUNK_SIZE = 16_384;
+    private static final LootContextParamSet NO_PARAMS = LootContextParamSet.builder().build();
+
+    // Właściwości do uruchomienia bez graczy: -Dlootapi.simulate=tabela1,tabela2
+    private static final String PROPERTY_TABLES = "lootapi.simulate";
+    private static final String PROPERTY_ROLLS = "lootapi.simulate.rolls";
+    private static final String PROPERTY_SEED = "lootapi.simulate.seed";
+    private static final String PROPERTY_EXIT = "lootapi.simulate.exit";
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    private LootSimulator() {
+    }
+
+    /**
+     * Czy tabela istnieje na serwerze
+     */
+    public static boolean hasTable(MinecraftServer server, ResourceLocation tableId) {
+        return server.reloadableRegistries().getKeys(Registries.LOOT_TABLE).contains(tableId);
+    }
+
+    /**
+     * Uruchamia symulację w tle (jedna naraz)
+     * @return wynik albo pusty, jeśli inna symulacja już trwa
+     */
+    public static Optional<CompletableFuture<SimulationResult>> simulateAsync(ServerLevel level, ResourceLocation tableId,
+                                                                             long rolls, long seed) {
+        if (!RUNNING.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        CompletableFuture<SimulationResult> future = CompletableFuture
+                .supplyAsync(() -> simulate(level, tableId, rolls, seed), runnable -> Thread.ofPlatform()
+                        .name("LootAPI Simulation")
+                        .daemon()
+                        .start(runnable));
+        return Optional.of(future.whenComplete((result, error) -> RUNNING.set(false)));
+    }
+
+    /**
+     * Symuluje {@code rolls} losowań tabeli z aktualnym potokiem reguł (blokuje do końca)
+     */
+    public static SimulationResult simulate(ServerLevel level, ResourceLocation tableId, long rolls, long seed) {
+        if (rolls <= 0) {
+            throw new IllegalArgumentException("Rolls must be positive, got: " + rolls);
+        }
+
+        LootTable table = level.getServer().reloadableRegistries()
+                .getLootTable(ResourceKey.create(Registries.LOOT_TABLE, tableId));
+        // Te same reguły co na serwerze, ale bez liczników typów - symulacja nie zmienia /lootapi stats
+        LootPipeline pipeline = LootRuleIndex.get().pipelineFor(tableId).withoutMetrics();
+        LootParams params = new LootParams.Builder(level).create(NO_PARAMS);
+        PositionalRandomFactory streams = new XoroshiroRandomSource(seed).forkPositional();
+
+        int chunks = Math.toIntExact((rolls + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        // Serwer ma swój wątek - pula zostawia mu jeden rdzeń
+        int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        long start = System.nanoTime();
+        Map<Item, Int2LongOpenHashMap> histograms;
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            histograms = pool.invoke(new ChunkTask(new Job(tableId, table, pipeline, params, streams, rolls), 0, chunks));
+        }
+        return SimulationResult.of(tableId, rolls, seed, System.nanoTime() - start, histograms);
+    }
+
+    /**
+     * Uruchamia symulacje z właściwości systemowych (wywoływane po starcie serwera)
+     *
+     * -Dlootapi.simulate=minecraft:chests/simple_dungeon,minecraft:entities/zombie
+     * -Dlootapi.simulate.rolls=1000000  -Dlootapi.simulate.seed=0  -Dlootapi.simulate.exit=true
+     */
+    public static void runFromProperties(MinecraftServer server) {
+        String tables = System.getProperty(PROPERTY_TABLES, "").trim();
+        if (tables.isEmpty()) {
+            return;
+        }
+        long rolls = Long.getLong(PROPERTY_ROLLS, DEFAULT_ROLLS);
+        long seed = Long.getLong(PROPERTY_SEED, 0L);
+        boolean exit = Boolean.getBoolean(PROPERTY_EXIT);
+        List<ResourceLocation> tableIds = Arrays.stream(tables.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(ResourceLocation::parse)
+                .toList();
+        ServerLevel level = server.overworld();
+
+        Thread.ofPlatform().name("LootAPI Simulation").daemon().start(() -> {
+            try {
+                for (ResourceLocation tableId : tableIds) {
+                    if (!hasTable(server, tableId)) {
+                        LOGGER.warn("Unknown loot table {}, skipping simulation", tableId);
+                        continue;
+                    }
+                    log(simulate(level, tableId, rolls, seed));
+                }
+            } catch (Exception e) {
+                LOGGER.error("Simulation failed", e);
+            } finally {
+                if (exit) {
+                    server.execute(() -> server.halt(false));
+                }
+            }
+        });
+    }
+
+    /**
+     * Wypisuje wynik do logu
+     */
+    public static void log(SimulationResult result) {
+        LOGGER.header("Simulation of " + result.table());
+        LOGGER.info("{} rolls in {} ms (seed {})", result.rolls(),
+                String.format(Locale.ROOT, "%.1f", result.elapsedNanos() / 1_000_000.0), result.seed());
+        for (SimulationResult.ItemStats stats : result.items()) {
+            LOGGER.plain("  {}", describe(stats));
+        }
+    }
+
+    /**
+     * Jedna linia opisu przedmiotu (log i komenda)
+     */
+    public static String describe(SimulationResult.ItemStats stats) {
+        return String.format(Locale.ROOT, "%s: mean %.4f, sd %.4f, p50 %d, p90 %d, p99 %d, max %d, drop rate %.2f%%",
+                stats.item(), stats.mean(), stats.standardDeviation(), stats.p50(), stats.p90(), stats.p99(),
+                stats.max(), stats.dropRate() * 100.0);
+    }
+
+    /**
+     * Niezmienne dane symulacji współdzielone przez porcje
+     */
+    private record Job(ResourceLocation tableId, LootTable table, LootPipeline pipeline, LootParams params,
+                       PositionalRandomFactory streams, long rolls) {
+    }
+
+    /**
+     * Dzieli zakres porcji na pół aż do pojedynczej porcji, histogramy są scalane w górę
+     */
+    private static final class ChunkTask extends RecursiveTask<Map<Item, Int2LongOpenHashMap>> {
+        private final Job job;
+        private final int from;
+        private final int to;
+
+        ChunkTask(Job job, int from, int to) {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Item, Int2LongOpenHashMap> compute() {
+            if (to - from == 1) {
+                return rollChunk(job, from);
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(job, from, middle);
+            left.fork();
+            Map<Item, Int2LongOpenHashMap> right = new ChunkTask(job, middle, to).compute();
+            return merge(left.join(), right);
+        }
+    }
+
+    private static Map<Item, Int2LongOpenHashMap> rollChunk(Job job, int chunk) {
+        long first = (long) chunk * CHUNK_SIZE;
+        long count = Math.min(CHUNK_SIZE, job.rolls() - first);
+
+        RandomSource random = job.streams().at(chunk, 0, 0);
+        LootContext context = new LootContext.Builder(job.params())
+                .withOptionalRandomSource(random)
+                .create(Optional.empty());
+        context.setQueriedLootTableId(job.tableId());
+
+        Map<Item, Int2LongOpenHashMap> histograms = new Reference2ObjectOpenHashMap<>();
+        Reference2IntOpenHashMap<Item> rollCounts = new Reference2IntOpenHashMap<>();
+        ObjectArrayList<ItemStack> loot = new ObjectArrayList<>();
+        for (long i = 0; i < count; i++) {
+            loot.clear();
+            job.table().getRandomItemsRaw(context, loot::add);
+            ObjectArrayList<ItemStack> result = job.pipeline().apply(loot, context);
+
+            for (int s = 0; s < result.size(); s++) {
+                ItemStack stack = result.get(s);
+                if (!stack.isEmpty()) {
+                    rollCounts.addTo(stack.getItem(), stack.getCount());
+                }
+            }
+            for (Reference2IntMap.Entry<Item> entry : rollCounts.reference2IntEntrySet()) {
+                histograms.computeIfAbsent(entry.getKey(), item -> new Int2LongOpenHashMap())
+                        .addTo(entry.getIntValue(), 1);
+            }
+            rollCounts.clear();
+        }
+        return histograms;
+    }
+
+    private static Map<Item, Int2LongOpenHashMap> merge(Map<Item, Int2LongOpenHashMap> into,
+                                                        Map<Item, Int2LongOpenHashMap> from) {
+        for (Map.Entry<Item, Int2LongOpenHashMap> entry : from.entrySet()) {
+            Int2LongOpenHashMap target = into.get(entry.getKey());
+            if (target == null) {
+                into.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+            entry.getValue().int2LongEntrySet().forEach(bucket -> target.addTo(bucket.getIntKey(), bucket.getLongValue()));
+        }
+        return into;
+    }
+}
@@ -0,0 +1,87 @@
+package pl.mikof.lootapi.simulation;
+
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wynik symulacji tabeli: statystyki ilości każdego przedmiotu na jedno losowanie
+ *
+ * Statystyki są liczone dokładnie z histogramów (ilość → liczba losowań),
+ * losowania bez danego przedmiotu liczą się jako ilość 0.
+ */
+public record SimulationResult(ResourceLocation table, long rolls, long seed, long elapsedNanos, List<ItemStats> items) {
+
+    /**
+     * Statystyki jednego przedmiotu
+     * @param dropRate odsetek losowań, w których przedmiot wypadł
+     */
+    public record ItemStats(Item item, double mean, double variance, int p50, int p90, int p99, int max, double dropRate) {
+        public double standardDeviation() {
+            return Math.sqrt(variance);
+        }
+    }
+
+    /**
+     * Liczy statystyki z histogramów - przedmioty posortowane malejąco po średniej
+     */
+    static SimulationResult of(ResourceLocation table, long rolls, long seed, long elapsedNanos,
+                               Map<Item, Int2LongOpenHashMap> histograms) {
+        List<ItemStats> items = new ArrayList<>(histograms.size());
+        for (Map.Entry<Item, Int2LongOpenHashMap> entry : histograms.entrySet()) {
+            items.add(stats(entry.getKey(), entry.getValue(), rolls));
+        }
+        items.sort(Comparator.comparingDouble(ItemStats::mean).reversed());
+        return new SimulationResult(table, rolls, seed, elapsedNanos, List.copyOf(items));
+    }
+
+    private static ItemStats stats(Item item, Int2LongOpenHashMap histogram, long rolls) {
+        double sum = 0;
+        double sumOfSquares = 0;
+        long dropped = 0;
+        for (Int2LongMap.Entry bucket : histogram.int2LongEntrySet()) {
+            double count = bucket.getIntKey();
+            long frequency = bucket.getLongValue();
+            sum += count * frequency;
+            sumOfSquares += count * count * frequency;
+            dropped += frequency;
+        }
+        double mean = sum / rolls;
+        double variance = Math.max(0.0, sumOfSquares / rolls - mean * mean);
+
+        int[] counts = histogram.keySet().toIntArray();
+        IntArrays.quickSort(counts);
+        int max = counts.length == 0 ? 0 : counts[counts.length - 1];
+        long zeros = rolls - dropped;
+        return new ItemStats(item, mean, variance,
+                percentile(counts, histogram, zeros, rolls, 0.50),
+                percentile(counts, histogram, zeros, rolls, 0.90),
+                percentile(counts, histogram, zeros, rolls, 0.99),
+                max, (double) dropped / rolls);
+    }
+
+    /**
+     * Najmniejsza ilość, dla której skumulowany odsetek losowań osiąga {@code quantile}
+     */
+    private static int percentile(int[] sortedCounts, Int2LongOpenHashMap histogram, long zeros, long rolls, double quantile) {
+        double threshold = quantile * rolls;
+        long cumulative = zeros;
+        if (cumulative >= threshold) {
+            return 0;
+        }
+        for (int count : sortedCounts) {
+            cumulative += histogram.get(count);
+            if (cumulative >= threshold) {
+                return count;
+            }
+        }
+        return sortedCounts.length == 0 ? 0 : sortedCounts[sortedCounts.length - 1];
+    }
+}
@@ -5,6 +5,10 @@ import org.slf4j.Logger;
 /**
  * Pomocnicza klasa do kolorowych logów
  * Używa ANSI escape codes dla lepszej czytelności
+ *
+ * Każda metoda najpierw sprawdza poziom loggera - wyfiltrowany log nie skleja kolorów ani nie formatuje
+ * argumentów. Szczegóły pojedynczych reguł idą przez {@link #detail}, widoczny tylko w trybie
+ * verbose (-Dlootapi.verbose=true) albo na poziomie DEBUG.
  */
 public class ColoredLogger {
     // ANSI Color Codes
@@ -19,6 +23,9 @@ public class ColoredLogger {
     private static final String BOLD = "\u001B[1m";
     private static final String DIM = "\u001B[2m";
 
+    // Szczegóły każdej reguły na poziomie INFO (domyślnie tylko podsumowania)
+    private static final boolean VERBOSE = Boolean.getBoolean("lootapi.verbose");
+
     private final Logger logger;
     private final boolean colorsEnabled;
 
@@ -40,6 +47,9 @@ public class ColoredLogger {
      * Log sukcesu (zielony)
      */
     public void success(String message, Object... args) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
         if (colorsEnabled) {
             logger.info(GREEN + "✓ " + message + RESET, args);
         } else {
@@ -51,6 +61,9 @@ public class ColoredLogger {
      * Log akcji (cyan)
      */
     public void action(String message, Object... args) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
         if (colorsEnabled) {
             logger.info(CYAN + "→ " + message + RESET, args);
         } else {
@@ -62,6 +75,9 @@ public class ColoredLogger {
      * Log informacji (niebieski)
      */
     public void info(String message, Object... args) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
         if (colorsEnabled) {
             logger.info(BLUE + message + RESET, args);
         } else {
@@ -73,6 +89,9 @@ public class ColoredLogger {
      * Log ostrzeżenia (żółty)
      */
     public void warn(String message, Object... args) {
+        if (!logger.isWarnEnabled()) {
+            return;
+        }
         if (colorsEnabled) {
             logger.warn(YELLOW + "⚠ " + message + RESET, args);
         } else {
@@ -84,6 +103,9 @@ public class ColoredLogger {
      * Log nagłówka (bold cyan)
      */
     public void header(String message) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
         if (colorsEnabled) {
             logger.info(BOLD + CYAN + message + RESET);
         } else {
@@ -95,6 +117,9 @@ public class ColoredLogger {
      * Zwykły logger bez kolorów
      */
     public void plain(String message, Object... args) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
         logger.info(message, args);
     }
 
@@ -102,6 +127,9 @@ public class ColoredLogger {
      * Error (czerwony) - przekierowuje do standardowego error
      */
     public void error(String message, Object... args) {
+        if (!logger.isErrorEnabled()) {
+            return;
+        }
         logger.error(RED + "✗ " + message + RESET, args);
     }
 
@@ -109,6 +137,9 @@ public class ColoredLogger {
      * Error z wyjątkiem
      */
     public void error(String message, Throwable throwable) {
+        if (!logger.isErrorEnabled()) {
+            return;
+        }
         logger.error(RED + "✗ " + message + RESET, throwable);
     }
 
@@ -116,6 +147,9 @@ public class ColoredLogger {
      * Log debugowania (szary, przygaszony)
      */
     public void debug(String message, Object... args) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
         if (colorsEnabled) {
             logger.debug(GRAY + message + RESET, args);
         } else {
@@ -123,10 +157,39 @@ public class ColoredLogger {
         }
     }
 
+    /**
+     * Szczegół pojedynczej operacji (jak {@link #action}) - w trybie verbose na INFO, inaczej na DEBUG
+     * Zwykle zastępowany podsumowaniem fazy ({@link LogSummary})
+     */
+    public void detail(String message, Object... args) {
+        if (VERBOSE) {
+            action(message, args);
+        } else {
+            debug(message, args);
+        }
+    }
+
+    /**
+     * Czy {@link #detail} cokolwiek wypisze - do pominięcia kosztownych argumentów
+     */
+    public boolean isDetailEnabled() {
+        return VERBOSE ? logger.isInfoEnabled() : logger.isDebugEnabled();
+    }
+
+    /**
+     * Czy włączony jest tryb verbose (-Dlootapi.verbose=true)
+     */
+    public static boolean isVerbose() {
+        return VERBOSE;
+    }
+
     /**
      * Log inicjalizacji (magenta/fioletowy)
      */
     public void init(String message, Object... args) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
         if (colorsEnabled) {
             logger.info(MAGENTA + "⚙ " + message + RESET, args);
         } else {
@@ -138,6 +201,9 @@ public class ColoredLogger {
      * Wypisuje separator (linia)
      */
     public void separator() {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
         if (colorsEnabled) {
             logger.info(GRAY + "═══════════════════════════════════════" + RESET);
         } else {
@@ -149,6 +215,9 @@ public class ColoredLogger {
      * Box header (nagłówek w ramce)
      */
     public void box(String... lines) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
         if (colorsEnabled) {
             logger.info(BOLD + CYAN + "╔═══════════════════════════════════════╗" + RESET);
             for (String line : lines) {
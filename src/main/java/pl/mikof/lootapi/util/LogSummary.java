@@ -0,0 +1,54 @@
+package pl.mikof.lootapi.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Zlicza operacje jednej fazy (np. rejestracji reguł) i wypisuje je jedną linią
+ * zamiast linii na każdą regułę - szczegóły zostają w {@link ColoredLogger#detail}
+ */
+public final class LogSummary {
+    private final String phase;
+    // Kolejność pierwszego wystąpienia - podsumowanie czyta się jak log
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    private int total;
+
+    public LogSummary(String phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * Zlicza jedną operację danego rodzaju
+     */
+    public void count(String kind) {
+        count(kind, 1);
+    }
+
+    /**
+     * Zlicza {@code amount} operacji danego rodzaju
+     */
+    public synchronized void count(String kind, int amount) {
+        counts.merge(kind, amount, Integer::sum);
+        total += amount;
+    }
+
+    /**
+     * Wypisuje podsumowanie (jeśli cokolwiek zliczono) i zaczyna fazę od zera
+     */
+    public synchronized void flush(ColoredLogger logger) {
+        if (total == 0) {
+            return;
+        }
+        StringJoiner parts = new StringJoiner(", ");
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            parts.add(entry.getValue() + " " + entry.getKey());
+        }
+        logger.success("{}: {} ({})", phase, total, parts);
+        if (!ColoredLogger.isVerbose()) {
+            logger.debug("Run with -Dlootapi.verbose=true to log every operation");
+        }
+        counts.clear();
+        total = 0;
+    }
+}